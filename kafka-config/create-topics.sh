@@ -16,6 +16,27 @@ kafka-topics --bootstrap-server kafka:29092 \
     --replication-factor 1 \
     --config retention.ms=86400000
 
+# Latest state per video, keyed by video ID; deletes are tombstones (null values)
+kafka-topics --bootstrap-server kafka:29092 \
+    --create \
+    --if-not-exists \
+    --topic youtube-video-state \
+    --partitions 3 \
+    --replication-factor 1 \
+    --config cleanup.policy=compact \
+    --config min.compaction.lag.ms=0 \
+    --config segment.ms=3600000 \
+    --config delete.retention.ms=86400000
+
+# Telegram notifications that could not be read or that Telegram rejected, keyed by video ID
+kafka-topics --bootstrap-server kafka:29092 \
+    --create \
+    --if-not-exists \
+    --topic youtube-comments.DLT \
+    --partitions 1 \
+    --replication-factor 1 \
+    --config retention.ms=604800000
+
 # Add more topics here if needed
 
 echo "Topics created successfully!"
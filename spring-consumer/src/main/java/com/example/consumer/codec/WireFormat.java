@@ -0,0 +1,65 @@
+package com.example.consumer.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reading side of the binary record format written by the producer.
+ *
+ * A record is a magic byte, a schema version byte and a list of fields. Each
+ * field starts with a varint key holding {@code (fieldNumber << 3) | wireType}
+ * so fields this service does not know are skipped. Integers are zigzag
+ * varints, strings are a varint length followed by UTF-8 bytes.
+ */
+final class WireFormat {
+
+    /** First byte of every binary record; can never start a JSON document. */
+    static final byte MAGIC = (byte) 0xB7;
+    static final int VERSION = 1;
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_BYTES = 2;
+
+    private WireFormat() {
+    }
+
+    static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static long readLong(ByteBuffer in) {
+        long raw = readVarint(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    static void skip(ByteBuffer in, int wireType) {
+        switch (wireType) {
+            case WIRE_VARINT -> readVarint(in);
+            case WIRE_BYTES -> {
+                // Read the length first: it moves the position past itself
+                int length = (int) readVarint(in);
+                in.position(in.position() + length);
+            }
+            default -> throw new IllegalArgumentException("Unknown wire type " + wireType);
+        }
+    }
+}
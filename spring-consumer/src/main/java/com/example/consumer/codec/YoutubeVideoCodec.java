@@ -0,0 +1,64 @@
+package com.example.consumer.codec;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Decodes binary {@link YoutubeVideo} records. Only the fields this service
+ * uses are read; the field numbers must match the producer's
+ * {@code YoutubeVideoCodec}, and any other field is skipped.
+ */
+public final class YoutubeVideoCodec {
+
+    static final int VIDEO_ID = 1;
+    static final int TITLE = 2;
+    static final int CHANNEL_ID = 3;
+    static final int CHANNEL_NAME = 4;
+    static final int VIEW_COUNT = 5;
+    static final int LIKE_COUNT = 6;
+    static final int COMMENT_COUNT = 7;
+    static final int COMMENT_TEXT = 8;
+    static final int VIDEO_URL = 10;
+    static final int FETCHED_AT = 11;
+    static final int SUBSCRIBER_COUNT = 12;
+    static final int VIDEO_COUNT = 13;
+
+    private YoutubeVideoCodec() {
+    }
+
+    public static YoutubeVideo decode(byte[] data) {
+        if (!WireFormat.isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary YoutubeVideo record");
+        }
+        int version = data[1] & 0xFF;
+        if (version > WireFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported YoutubeVideo record version " + version);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+        YoutubeVideo video = new YoutubeVideo();
+        while (in.hasRemaining()) {
+            long key = WireFormat.readVarint(in);
+            int field = (int) (key >>> 3);
+            int wireType = (int) (key & 0x7);
+            switch (field) {
+                case VIDEO_ID -> video.setVideoId(WireFormat.readString(in));
+                case TITLE -> video.setTitle(WireFormat.readString(in));
+                case CHANNEL_ID -> video.setChannelId(WireFormat.readString(in));
+                case CHANNEL_NAME -> video.setChannelName(WireFormat.readString(in));
+                case VIEW_COUNT -> video.setViewCount(WireFormat.readLong(in));
+                case LIKE_COUNT -> video.setLikeCount(WireFormat.readLong(in));
+                case COMMENT_COUNT -> video.setCommentCount(WireFormat.readLong(in));
+                case COMMENT_TEXT -> video.setCommentText(WireFormat.readString(in));
+                case VIDEO_URL -> video.setVideoUrl(WireFormat.readString(in));
+                case FETCHED_AT -> video.setLastUpdated(Instant.ofEpochMilli(WireFormat.readLong(in)));
+                case SUBSCRIBER_COUNT -> video.setSubscriberCount(WireFormat.readLong(in));
+                case VIDEO_COUNT -> video.setVideoCount(WireFormat.readLong(in));
+                default -> WireFormat.skip(in, wireType);
+            }
+        }
+        return video;
+    }
+}
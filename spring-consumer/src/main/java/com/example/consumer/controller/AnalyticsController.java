@@ -1,44 +1,201 @@
 package com.example.consumer.controller;
 
 import com.example.consumer.model.YoutubeVideo;
+import com.example.consumer.service.AnalyticsSnapshotCache;
+import com.example.consumer.service.ChannelIndex;
+import com.example.consumer.service.AnalyticsStreamService;
 import com.example.consumer.service.KafkaConsumerService;
+import com.example.consumer.service.VideoFields;
+import com.example.consumer.service.VideoLeaderboards;
+import com.example.consumer.service.VideoVelocityTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/analytics")
-@CrossOrigin(origins = "*", allowedHeaders = "*", methods = {
-    RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, 
+@CrossOrigin(origins = "*", allowedHeaders = "*", exposedHeaders = HttpHeaders.ETAG, methods = {
+    RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT,
     RequestMethod.DELETE, RequestMethod.OPTIONS
 })
 public class AnalyticsController {
 
     private final KafkaConsumerService kafkaConsumerService;
+    private final AnalyticsSnapshotCache snapshotCache;
+    private final AnalyticsStreamService streamService;
 
-    public AnalyticsController(KafkaConsumerService kafkaConsumerService) {
+    @Value("${analytics.top.max-limit:100}")
+    private int maxTopLimit;
+
+    @Value("${analytics.videos.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${analytics.videos.max-page-size:500}")
+    private int maxPageSize;
+
+    public AnalyticsController(KafkaConsumerService kafkaConsumerService, AnalyticsSnapshotCache snapshotCache,
+                               AnalyticsStreamService streamService) {
         this.kafkaConsumerService = kafkaConsumerService;
+        this.snapshotCache = snapshotCache;
+        this.streamService = streamService;
     }
 
     @GetMapping("/highest")
-    public ResponseEntity<Map<String, Object>> getHighestStats() {
-        Map<String, Object> analytics = kafkaConsumerService.getAnalytics();
-        return ResponseEntity.ok(analytics);
+    public ResponseEntity<byte[]> getHighestStats(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached("highest", ifNoneMatch, kafkaConsumerService::getAnalytics);
     }
 
+    /**
+     * Pages through all videos sorted by a metric, with optional channel and
+     * title filters and a {@code fields} projection. Pass the returned
+     * {@code nextCursor} as {@code cursor} to get the following page.
+     */
     @GetMapping("/videos")
-    public ResponseEntity<List<YoutubeVideo>> getAllVideos() {
-        return ResponseEntity.ok(kafkaConsumerService.getAllVideos());
+    public ResponseEntity<?> getVideos(@RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit,
+                                       @RequestParam(defaultValue = "views") String sort,
+                                       @RequestParam(defaultValue = "desc") String order,
+                                       @RequestParam(required = false) String channel,
+                                       @RequestParam(required = false) String title,
+                                       @RequestParam(required = false) List<String> fields,
+                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Read before building the page so a concurrent change never goes unnoticed
+        String etag = snapshotCache.getEtag();
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        try {
+            VideoLeaderboards.Metric metric = VideoLeaderboards.Metric.fromKey(sort);
+            if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new IllegalArgumentException("Unknown order: " + order);
+            }
+            if (fields != null) {
+                VideoFields.validate(fields);
+            }
+            int size = Math.max(1, Math.min(limit != null ? limit : defaultPageSize, maxPageSize));
+
+            VideoLeaderboards.Page page = kafkaConsumerService.getVideoPage(metric, order.equalsIgnoreCase("asc"),
+                cursor, channel, title, size);
+            List<Object> items = new ArrayList<>(page.getVideos().size());
+            for (YoutubeVideo video : page.getVideos()) {
+                items.add(fields != null ? VideoFields.project(video, fields) : video);
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("items", items);
+            body.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @GetMapping("/comparison")
-    public ResponseEntity<Map<String, Object>> getVideoComparison() {
-        Map<String, Object> analytics = kafkaConsumerService.getAnalytics();
-        if (analytics.isEmpty()) {
-            return ResponseEntity.ok(Map.of("message", "No videos available for comparison"));
+    public ResponseEntity<byte[]> getVideoComparison(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return cached("comparison", ifNoneMatch, () -> {
+            Map<String, Object> analytics = kafkaConsumerService.getAnalytics();
+            if (analytics.isEmpty()) {
+                return Map.of("message", "No videos available for comparison");
+            }
+            return analytics;
+        });
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<?> getTopVideos(@RequestParam(defaultValue = "views") String metric,
+                                          @RequestParam(defaultValue = "10") int limit,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            VideoLeaderboards.Metric ranking = VideoLeaderboards.Metric.fromKey(metric);
+            int size = Math.max(1, Math.min(limit, maxTopLimit));
+            return cached("top:" + ranking.getKey() + ":" + size, ifNoneMatch,
+                () -> kafkaConsumerService.getTopVideos(ranking, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** Channels ranked by the total views of their tracked videos. */
+    @GetMapping("/channels")
+    public ResponseEntity<byte[]> getChannels(@RequestParam(defaultValue = "50") int limit,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int size = Math.max(1, Math.min(limit, maxTopLimit));
+        return cached("channels:" + size, ifNoneMatch, () -> kafkaConsumerService.getTopChannels(size));
+    }
+
+    /** Totals and best video of one channel, by channel ID or case-insensitive name. */
+    @GetMapping("/channels/{channel}")
+    public ResponseEntity<ChannelIndex.ChannelSummary> getChannel(@PathVariable String channel) {
+        ChannelIndex.ChannelSummary summary = kafkaConsumerService.getChannel(channel);
+        if (summary == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(summary);
+    }
+
+    /**
+     * The fastest growing videos right now: views and likes per hour over the
+     * recent window, ranked by trending score.
+     */
+    @GetMapping("/trending")
+    public List<VideoVelocityTracker.Trend> getTrendingVideos(@RequestParam(defaultValue = "10") int limit) {
+        return kafkaConsumerService.getTrendingVideos(Math.max(1, Math.min(limit, maxTopLimit)));
+    }
+
+    /** Listener throughput: records/sec and per-batch latency. */
+    @GetMapping("/consumer")
+    public Map<String, Object> getConsumerStats() {
+        return kafkaConsumerService.getConsumerStats();
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAnalytics() {
+        return streamService.subscribe();
+    }
+
+    /**
+     * Serves the response cached for the current state version, or 304 Not
+     * Modified when the client already has it.
+     */
+    private ResponseEntity<byte[]> cached(String key, String ifNoneMatch, Supplier<Object> body) {
+        AnalyticsSnapshotCache.Snapshot snapshot = snapshotCache.get(key, body);
+        if (matches(ifNoneMatch, snapshot.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .build();
+        }
+        return ResponseEntity.ok()
+            .eTag(snapshot.getEtag())
+            .cacheControl(CacheControl.noCache())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(snapshot.getBody());
+    }
+
+    private boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
         }
-        return ResponseEntity.ok(analytics);
+        return false;
     }
-} 
\ No newline at end of file
+}
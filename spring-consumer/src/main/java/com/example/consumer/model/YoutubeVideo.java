@@ -2,9 +2,12 @@ package com.example.consumer.model;
 
 import java.time.Instant;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+
 public class YoutubeVideo {
     private String videoId;
     private String title;
+    private String channelId;
     private String channelName;
     private Long subscriberCount;
     private Long videoCount;
@@ -14,6 +17,8 @@ public class YoutubeVideo {
     private Long viewCount;
     private String videoUrl;
     private Instant receivedAt;
+    // When the producer fetched these statistics
+    @JsonAlias("fetchedAt")
     private Instant lastUpdated;
 
     // Default constructor
@@ -26,6 +31,9 @@ public class YoutubeVideo {
     public String getVideoId() { return videoId; }
     public void setVideoId(String videoId) { this.videoId = videoId; }
 
+    public String getChannelId() { return channelId; }
+    public void setChannelId(String channelId) { this.channelId = channelId; }
+
     public String getChannelName() { return channelName; }
     public void setChannelName(String channelName) { this.channelName = channelName; }
 
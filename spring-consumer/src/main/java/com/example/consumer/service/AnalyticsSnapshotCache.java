@@ -0,0 +1,95 @@
+package com.example.consumer.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialized analytics responses, cached per endpoint at the state version
+ * they were built from. The version goes up on every stored change, so a
+ * response is serialized at most once per change no matter how many
+ * dashboards poll it, and the version doubles as the response's ETag.
+ *
+ * The version starts again from zero on every start, so the ETag also
+ * carries an ID picked at startup; otherwise a dashboard holding a tag from
+ * before a restart would get a 304 once the new count reached its version.
+ */
+@Service
+public class AnalyticsSnapshotCache implements VideoChangeListener {
+
+    private final ObjectMapper objectMapper;
+    private final String bootId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public AnalyticsSnapshotCache(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public static class Snapshot {
+        private final long version;
+        private final String etag;
+        private final byte[] body;
+
+        public Snapshot(long version, String etag, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public long getVersion() { return version; }
+        public String getEtag() { return etag; }
+        public byte[] getBody() { return body; }
+    }
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        version.incrementAndGet();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /** ETag of a response built from the current state. */
+    public String getEtag() {
+        return etagOf(version.get());
+    }
+
+    private String etagOf(long version) {
+        return "\"" + bootId + "-" + version + "\"";
+    }
+
+    /**
+     * Returns the response cached under {@code key} if it was built at the
+     * current version, otherwise builds and serializes it again.
+     */
+    public Snapshot get(String key, Supplier<Object> body) {
+        long current = version.get();
+        Snapshot cached = snapshots.get(key);
+        if (cached != null && cached.getVersion() == current) {
+            return cached;
+        }
+        // Tagged with the version read before building, so a change made while
+        // building only causes one extra rebuild, never a stale response
+        Snapshot snapshot = new Snapshot(current, etagOf(current), serialize(body.get()));
+        snapshots.put(key, snapshot);
+        return snapshot;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize analytics response", e);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.consumer.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.consumer.model.YoutubeVideo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes analytics changes to dashboards over Server-Sent Events.
+ *
+ * Changes are collected per video between ticks, so a burst of updates to the
+ * same video becomes a single entry. Once per tick the pending changes are
+ * turned into one {@code delta} frame holding only the fields that changed,
+ * the deleted video IDs and the current totals, top performers and trending
+ * videos. The frame
+ * is serialized once and queued for every subscriber. Idle streams only get
+ * a heartbeat comment now and then.
+ *
+ * Frames are written by a small sender pool, never by the scheduler thread,
+ * so a slow or stalled client cannot hold up the tick or the other
+ * dashboards. Each client has a bounded queue of unsent frames; a client
+ * whose queue fills up has fallen behind and is dropped, and its browser
+ * reconnects and reloads the current state.
+ *
+ * A write to a client that stopped reading blocks its sender thread until
+ * the container's write timeout gives up, and cannot be cut short from here.
+ * A client stuck in one write for longer than the send timeout is therefore
+ * dropped and the pool gets a thread in place of the blocked one until that
+ * write returns, so stalled clients never starve the others.
+ */
+@Service
+public class AnalyticsStreamService implements VideoChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsStreamService.class);
+
+    private final ObjectMapper objectMapper;
+    private final VideoAggregates aggregates;
+    private final VideoLeaderboards leaderboards;
+    private final AnalyticsSnapshotCache snapshotCache;
+    private final VideoVelocityTracker velocityTracker;
+    private final ChannelIndex channelIndex;
+
+    private final Map<String, PendingChange> pending = new ConcurrentHashMap<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ThreadPoolExecutor sender;
+    private final int senderThreads;
+    // Sender threads blocked in a write to a client that has been dropped
+    private int blockedSenders;
+    private volatile long lastSentAt = System.currentTimeMillis();
+
+    @Value("${analytics.stream.timeout:1800000}")
+    private long emitterTimeout;
+
+    @Value("${analytics.stream.heartbeat-interval:15000}")
+    private long heartbeatInterval;
+
+    @Value("${analytics.stream.trending-size:5}")
+    private int trendingSize;
+
+    @Value("${analytics.stream.max-queued-frames:30}")
+    private int maxQueuedFrames;
+
+    @Value("${analytics.stream.send-timeout:5000}")
+    private long sendTimeout;
+
+    public AnalyticsStreamService(ObjectMapper objectMapper, VideoAggregates aggregates,
+                                  VideoLeaderboards leaderboards, AnalyticsSnapshotCache snapshotCache,
+                                  VideoVelocityTracker velocityTracker, ChannelIndex channelIndex,
+                                  @Value("${analytics.stream.sender-threads:4}") int senderThreads) {
+        this.objectMapper = objectMapper;
+        this.aggregates = aggregates;
+        this.leaderboards = leaderboards;
+        this.snapshotCache = snapshotCache;
+        this.velocityTracker = velocityTracker;
+        this.channelIndex = channelIndex;
+        this.senderThreads = senderThreads;
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "analytics-stream-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * The state of a video at the last frame and its latest state since then
+     * ({@code null} when it did not exist or was deleted).
+     */
+    private static class PendingChange {
+        private final YoutubeVideo before;
+        private final YoutubeVideo after;
+
+        private PendingChange(YoutubeVideo before, YoutubeVideo after) {
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * An open stream and the frames not written to it yet. At most one sender
+     * thread drains a subscriber at a time, so its frames stay in order.
+     */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Deque<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+        // When the write in progress started, or 0 between writes
+        private volatile long sendStartedAt;
+        private boolean stalled;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<ResponseBodyEmitter.DataWithMediaType> payload) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (queue.size() >= maxQueuedFrames) {
+                    // Fallen behind: stop queueing, the sender completes the stream
+                    logger.info("Analytics stream fell {} frames behind, dropping it", queue.size());
+                    closed = true;
+                    queue.clear();
+                    subscribers.remove(this);
+                } else {
+                    queue.addLast(payload);
+                }
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sender.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> payload;
+                synchronized (this) {
+                    if (closed) {
+                        break;
+                    }
+                    payload = queue.pollFirst();
+                    if (payload == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                sendStartedAt = System.nanoTime();
+                try {
+                    emitter.send(payload);
+                } catch (IOException | IllegalStateException e) {
+                    // Client went away; drop it, the browser reconnects on its own
+                    closed();
+                    emitter.completeWithError(e);
+                    return;
+                } finally {
+                    sendDone();
+                }
+            }
+            emitter.complete();
+        }
+
+        /** Drops the client if its current write has taken longer than {@code timeoutNanos}. */
+        private void dropIfStalled(long now, long timeoutNanos) {
+            long startedAt = sendStartedAt;
+            if (startedAt == 0 || now - startedAt < timeoutNanos) {
+                return;
+            }
+            synchronized (this) {
+                if (closed || sendStartedAt != startedAt) {
+                    return;
+                }
+                closed = true;
+                stalled = true;
+                queue.clear();
+            }
+            subscribers.remove(this);
+            resizeSender(1);
+            logger.info("Analytics stream write stalled for over {} ms, dropping it", sendTimeout);
+        }
+
+        /** Ends a write, giving back the extra sender thread if the client was dropped meanwhile. */
+        private void sendDone() {
+            boolean wasStalled;
+            synchronized (this) {
+                sendStartedAt = 0;
+                wasStalled = stalled;
+                stalled = false;
+            }
+            if (wasStalled) {
+                resizeSender(-1);
+            }
+        }
+
+        /** Called when the stream ended, by the container or a failed write. */
+        private void closed() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            subscribers.remove(this);
+        }
+    }
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        String videoId = current != null ? current.getVideoId() : previous.getVideoId();
+        pending.merge(videoId, new PendingChange(previous, current),
+            (older, newer) -> new PendingChange(older.before, newer.after));
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeout);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(subscriber::closed);
+        emitter.onTimeout(subscriber::closed);
+        emitter.onError(e -> subscriber.closed());
+        subscribers.add(subscriber);
+        logger.debug("Analytics stream subscribed, {} open", subscribers.size());
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.stream.tick-interval:1000}")
+    public void flush() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.dropIfStalled(now, TimeUnit.MILLISECONDS.toNanos(sendTimeout));
+        }
+
+        if (pending.isEmpty()) {
+            if (!subscribers.isEmpty() && System.currentTimeMillis() - lastSentAt >= heartbeatInterval) {
+                broadcast(SseEmitter.event().comment("heartbeat"));
+            }
+            return;
+        }
+
+        List<Map<String, Object>> updated = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        for (Iterator<String> keys = pending.keySet().iterator(); keys.hasNext(); ) {
+            PendingChange change = pending.remove(keys.next());
+            if (change == null) {
+                continue;
+            }
+            if (change.after == null) {
+                if (change.before != null) {
+                    deleted.add(change.before.getVideoId());
+                }
+            } else {
+                updated.add(delta(change.before, change.after));
+            }
+        }
+        if (subscribers.isEmpty() || (updated.isEmpty() && deleted.isEmpty())) {
+            return;
+        }
+
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("version", snapshotCache.getVersion());
+        frame.put("totals", totals());
+        frame.put("highest", highest());
+        frame.put("trending", velocityTracker.top(trendingSize));
+        frame.put("updated", updated);
+        frame.put("deleted", deleted);
+
+        try {
+            broadcast(SseEmitter.event().name("delta")
+                .data(objectMapper.writeValueAsString(frame), MediaType.APPLICATION_JSON));
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize analytics delta: {}", e.getMessage());
+        }
+    }
+
+    private void broadcast(SseEmitter.SseEventBuilder event) {
+        lastSentAt = System.currentTimeMillis();
+        // Build the event once and queue the same payload for every subscriber
+        Set<ResponseBodyEmitter.DataWithMediaType> payload = event.build();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(payload);
+        }
+    }
+
+    /** Grows or shrinks the sender pool as writes to dropped clients block or return. */
+    private synchronized void resizeSender(int change) {
+        blockedSenders += change;
+        int size = senderThreads + blockedSenders;
+        if (change > 0) {
+            sender.setMaximumPoolSize(size);
+            sender.setCorePoolSize(size);
+        } else {
+            sender.setCorePoolSize(size);
+            sender.setMaximumPoolSize(size);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * The video ID plus every field that differs from {@code before}, with an
+     * explicit null for a field that was cleared, or all non-null fields for
+     * a video the clients have not seen yet.
+     */
+    private Map<String, Object> delta(YoutubeVideo before, YoutubeVideo after) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("videoId", after.getVideoId());
+        for (Map.Entry<String, Function<YoutubeVideo, Object>> field : VideoFields.ALL.entrySet()) {
+            Object value = field.getValue().apply(after);
+            if (before == null) {
+                if (value != null) {
+                    delta.put(field.getKey(), value);
+                }
+            } else if (!Objects.equals(field.getValue().apply(before), value)) {
+                delta.put(field.getKey(), value);
+            }
+        }
+        return delta;
+    }
+
+    private Map<String, Object> totals() {
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("totalVideos", aggregates.getVideoCount());
+        totals.put("totalChannels", channelIndex.size());
+        totals.put("totalViews", aggregates.getTotalViews());
+        totals.put("totalLikes", aggregates.getTotalLikes());
+        totals.put("totalComments", aggregates.getTotalComments());
+        totals.put("averageEngagementRate", String.format("%.2f%%", aggregates.getAverageEngagementRate()));
+        return totals;
+    }
+
+    private Map<String, YoutubeVideo> highest() {
+        Map<String, YoutubeVideo> highest = new HashMap<>();
+        for (VideoLeaderboards.Metric metric : VideoLeaderboards.Metric.values()) {
+            highest.put(metric.getKey(), leaderboards.highest(metric));
+        }
+        return highest;
+    }
+}
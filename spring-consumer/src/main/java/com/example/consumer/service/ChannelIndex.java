@@ -0,0 +1,241 @@
+package com.example.consumer.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Per-channel totals, kept up to date with the difference between the old
+ * and the new version of a video on every change. Channels are keyed by
+ * their YouTube channel ID, so two channels with the same title stay apart;
+ * the name is only shown. A channel is looked up by ID or by name in O(1),
+ * and channels are ranked by total views in a skip list, so listing the top
+ * channels never scans the videos.
+ */
+@Service
+public class ChannelIndex implements VideoChangeListener {
+
+    private static final String UNKNOWN_CHANNEL = "Unknown Channel";
+
+    // Highest total views first; the key breaks ties so every channel has exactly one slot
+    private static final Comparator<ChannelSummary> BY_VIEWS = Comparator
+        .comparingLong(ChannelSummary::getTotalViews).reversed()
+        .thenComparing(summary -> keyOf(summary.getChannelId(), summary.getName()));
+
+    // Most viewed video first
+    private static final Comparator<YoutubeVideo> VIDEO_BY_VIEWS = Comparator
+        .comparingLong((YoutubeVideo video) -> valueOf(video.getViewCount())).reversed()
+        .thenComparing(YoutubeVideo::getVideoId);
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final NavigableSet<ChannelSummary> ranking = new ConcurrentSkipListSet<>(BY_VIEWS);
+    // Lower-cased name to the channels that currently go by it, most viewed first
+    private final Map<String, NavigableSet<ChannelSummary>> byName = new ConcurrentHashMap<>();
+
+    /** The totals of one channel as of its last change. */
+    public static class ChannelSummary {
+        private final String channelId;
+        private final String name;
+        private final int videoCount;
+        private final long totalViews;
+        private final long totalLikes;
+        private final long totalComments;
+        private final Long subscriberCount;
+        private final Long uploadCount;
+        private final YoutubeVideo bestVideo;
+
+        public ChannelSummary(String channelId, String name, int videoCount, long totalViews, long totalLikes, long totalComments,
+                              Long subscriberCount, Long uploadCount, YoutubeVideo bestVideo) {
+            this.channelId = channelId;
+            this.name = name;
+            this.videoCount = videoCount;
+            this.totalViews = totalViews;
+            this.totalLikes = totalLikes;
+            this.totalComments = totalComments;
+            this.subscriberCount = subscriberCount;
+            this.uploadCount = uploadCount;
+            this.bestVideo = bestVideo;
+        }
+
+        public String getChannelId() { return channelId; }
+        public String getName() { return name; }
+        /** Videos of the channel tracked here. */
+        public int getVideoCount() { return videoCount; }
+        public long getTotalViews() { return totalViews; }
+        public long getTotalLikes() { return totalLikes; }
+        public long getTotalComments() { return totalComments; }
+        public Long getSubscriberCount() { return subscriberCount; }
+        /** Videos the channel has published on YouTube. */
+        public Long getUploadCount() { return uploadCount; }
+        public YoutubeVideo getBestVideo() { return bestVideo; }
+
+        /** Likes and comments per 100 views, over the tracked videos. */
+        public double getAverageEngagementRate() {
+            return totalViews > 0 ? Math.round((totalLikes + totalComments) * 10000.0 / totalViews) / 100.0 : 0;
+        }
+    }
+
+    /** Mutable totals of a channel; only changed inside {@code channels.compute}. */
+    private static class Channel {
+        private final NavigableSet<YoutubeVideo> videos = new ConcurrentSkipListSet<>(VIDEO_BY_VIEWS);
+        private long totalViews;
+        private long totalLikes;
+        private long totalComments;
+        private Long subscriberCount;
+        private Long uploadCount;
+        private volatile ChannelSummary summary;
+    }
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        String previousKey = previous != null ? keyOf(previous.getChannelId(), previous.getChannelName()) : null;
+        String currentKey = current != null ? keyOf(current.getChannelId(), current.getChannelName()) : null;
+        if (previousKey != null && !previousKey.equals(currentKey)) {
+            // Deleted, or moved to another channel
+            update(previousKey, previous, null);
+        }
+        if (currentKey != null) {
+            update(currentKey, previousKey != null && previousKey.equals(currentKey) ? previous : null, current);
+        }
+    }
+
+    private void update(String key, YoutubeVideo previous, YoutubeVideo current) {
+        channels.compute(key, (k, channel) -> {
+            if (channel == null) {
+                channel = new Channel();
+            }
+            if (previous != null) {
+                channel.videos.remove(previous);
+                channel.totalViews -= valueOf(previous.getViewCount());
+                channel.totalLikes -= valueOf(previous.getLikeCount());
+                channel.totalComments -= valueOf(previous.getCommentCount());
+            }
+            if (current != null) {
+                channel.videos.add(current);
+                channel.totalViews += valueOf(current.getViewCount());
+                channel.totalLikes += valueOf(current.getLikeCount());
+                channel.totalComments += valueOf(current.getCommentCount());
+                // Every video repeats the channel statistics; the latest one wins
+                channel.subscriberCount = current.getSubscriberCount();
+                channel.uploadCount = current.getVideoCount();
+            }
+
+            if (channel.summary != null) {
+                ranking.remove(channel.summary);
+                unindexName(channel.summary);
+            }
+            if (channel.videos.isEmpty()) {
+                return null;
+            }
+            YoutubeVideo latest = current != null ? current : previous;
+            String name = latest.getChannelName();
+            channel.summary = new ChannelSummary(latest.getChannelId(), name != null ? name : UNKNOWN_CHANNEL,
+                channel.videos.size(), channel.totalViews, channel.totalLikes, channel.totalComments,
+                channel.subscriberCount, channel.uploadCount, channel.videos.first());
+            ranking.add(channel.summary);
+            indexName(channel.summary);
+            return channel;
+        });
+    }
+
+    private void indexName(ChannelSummary summary) {
+        byName.compute(nameKey(summary.getName()), (k, named) -> {
+            if (named == null) {
+                named = new ConcurrentSkipListSet<>(BY_VIEWS);
+            }
+            named.add(summary);
+            return named;
+        });
+    }
+
+    private void unindexName(ChannelSummary summary) {
+        byName.computeIfPresent(nameKey(summary.getName()), (k, named) -> {
+            named.remove(summary);
+            return named.isEmpty() ? null : named;
+        });
+    }
+
+    /**
+     * A channel by its ID or, failing that, by name (case-insensitively). A
+     * name shared by several channels finds the one with the most views.
+     */
+    public ChannelSummary get(String channel) {
+        Channel byId = channels.get(channel);
+        if (byId != null) {
+            return byId.summary;
+        }
+        NavigableSet<ChannelSummary> named = byName.get(nameKey(channel));
+        if (named == null) {
+            return null;
+        }
+        try {
+            return named.first();
+        } catch (NoSuchElementException e) {
+            // Emptied by a concurrent update before it was removed
+            return null;
+        }
+    }
+
+    /**
+     * The videos of a channel by its ID or, failing that, of every channel
+     * by that name (case-insensitively), in no particular order.
+     */
+    public List<YoutubeVideo> videosOf(String channel) {
+        Channel byId = channels.get(channel);
+        if (byId != null) {
+            return new ArrayList<>(byId.videos);
+        }
+        List<YoutubeVideo> videos = new ArrayList<>();
+        NavigableSet<ChannelSummary> named = byName.get(nameKey(channel));
+        if (named != null) {
+            for (ChannelSummary summary : named) {
+                Channel match = channels.get(keyOf(summary.getChannelId(), summary.getName()));
+                if (match != null) {
+                    videos.addAll(match.videos);
+                }
+            }
+        }
+        return videos;
+    }
+
+    /** The {@code limit} channels with the most total views. */
+    public List<ChannelSummary> top(int limit) {
+        List<ChannelSummary> top = new ArrayList<>(Math.min(limit, 64));
+        Iterator<ChannelSummary> iterator = ranking.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    // Records from before the producer sent channel IDs fall back to the name
+    private static String keyOf(String channelId, String channelName) {
+        if (channelId != null) {
+            return channelId;
+        }
+        return "name:" + nameKey(channelName != null ? channelName : UNKNOWN_CHANNEL);
+    }
+
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
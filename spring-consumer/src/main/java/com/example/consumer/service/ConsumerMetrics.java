@@ -0,0 +1,77 @@
+package com.example.consumer.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Throughput of the video state listener: records received and applied, and
+ * how long each batch took, both as lifetime totals and for the last batch.
+ * The lifetime rate is measured from the first batch, so while a backlog is
+ * being drained it shows how fast the consumer catches up.
+ */
+@Service
+public class ConsumerMetrics {
+
+    private long batches;
+    private long records;
+    private long applied;
+    private long busyNanos;
+    private long maxBatchNanos;
+    private long firstBatchStartedAt;
+    private long lastBatchEndedAt;
+    private int lastBatchRecords;
+    private int lastBatchApplied;
+    private long lastBatchNanos;
+
+    /**
+     * Records one processed batch.
+     *
+     * @param received records in the poll
+     * @param appliedChanges changes left after keeping the last record per key
+     * @param startedAt {@link System#nanoTime()} when the batch was received
+     * @param nanos time taken to apply the batch
+     */
+    public synchronized void recordBatch(int received, int appliedChanges, long startedAt, long nanos) {
+        if (batches == 0) {
+            firstBatchStartedAt = startedAt;
+        }
+        batches++;
+        records += received;
+        applied += appliedChanges;
+        busyNanos += nanos;
+        maxBatchNanos = Math.max(maxBatchNanos, nanos);
+        lastBatchEndedAt = startedAt + nanos;
+        lastBatchRecords = received;
+        lastBatchApplied = appliedChanges;
+        lastBatchNanos = nanos;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batches", batches);
+        stats.put("records", records);
+        stats.put("applied", applied);
+        stats.put("recordsPerSecond", rate(records, lastBatchEndedAt - firstBatchStartedAt));
+        stats.put("averageBatchMillis", batches > 0 ? millis(busyNanos / batches) : 0.0);
+        stats.put("maxBatchMillis", millis(maxBatchNanos));
+
+        Map<String, Object> lastBatch = new LinkedHashMap<>();
+        lastBatch.put("records", lastBatchRecords);
+        lastBatch.put("applied", lastBatchApplied);
+        lastBatch.put("millis", millis(lastBatchNanos));
+        lastBatch.put("recordsPerSecond", rate(lastBatchRecords, lastBatchNanos));
+        stats.put("lastBatch", lastBatch);
+        return stats;
+    }
+
+    static double rate(long count, long nanos) {
+        return nanos > 0 ? Math.round(count * (double) TimeUnit.SECONDS.toNanos(1) / nanos * 10) / 10.0 : 0.0;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -1,143 +1,211 @@
 package com.example.consumer.service;
 
 import com.example.consumer.model.YoutubeVideo;
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.stereotype.Service;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 @Service
-public class KafkaConsumerService {
+public class KafkaConsumerService implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerService.class);
     
     // In-memory storage for video data
     private final Map<String, YoutubeVideo> videoCache = new ConcurrentHashMap<>();
+    private final List<VideoChangeListener> changeListeners;
+    private final VideoAggregates aggregates;
+    private final VideoLeaderboards leaderboards;
+    private final VideoStateStore stateStore;
+    private final ConsumerMetrics metrics;
+    private final VideoVelocityTracker velocityTracker;
+    private final ChannelIndex channelIndex;
+
+    public KafkaConsumerService(List<VideoChangeListener> changeListeners, VideoAggregates aggregates,
+                                VideoLeaderboards leaderboards, VideoStateStore stateStore,
+                                ConsumerMetrics metrics, VideoVelocityTracker velocityTracker,
+                                ChannelIndex channelIndex) {
+        this.changeListeners = changeListeners;
+        this.aggregates = aggregates;
+        this.leaderboards = leaderboards;
+        this.stateStore = stateStore;
+        this.metrics = metrics;
+        this.velocityTracker = velocityTracker;
+        this.channelIndex = channelIndex;
+    }
 
-    @KafkaListener(topics = "${kafka.topic.youtube-data}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consume(YoutubeVideo video) {
-        try {
-            if (video == null || video.getVideoId() == null) {
-                logger.warn("Received null video or video ID, skipping processing");
-                return;
+    /**
+     * Loads the videos kept in the local state store before any record is
+     * consumed, rebuilding every derived view through the change listeners.
+     */
+    @PostConstruct
+    public void restore() {
+        for (YoutubeVideo video : stateStore.getVideos()) {
+            videoCache.put(video.getVideoId(), video);
+            notifyListeners(null, video);
+        }
+        logger.info("Restored {} videos from the local state store", videoCache.size());
+    }
+
+    /**
+     * Resumes every partition right after the last record in the local state
+     * store. Partitions the store has never seen are read from the beginning,
+     * since the store, not the group's committed offset, holds the state.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        Map<TopicPartition, Long> stored = stateStore.getOffsets();
+        for (TopicPartition partition : assignments.keySet()) {
+            Long offset = stored.get(partition);
+            if (offset != null) {
+                callback.seek(partition.topic(), partition.partition(), offset);
+            } else {
+                callback.seekToBeginning(partition.topic(), partition.partition());
             }
+        }
+    }
 
-            logger.info("Processing video update for ID: {}", video.getVideoId());
-            
-            // Update video in cache
-            videoCache.put(video.getVideoId(), video);
-            
-            logger.info("Successfully processed video data. ID: {}, Title: {}", 
-                video.getVideoId(), video.getTitle());
-            
+    /**
+     * Reads the compacted video state topic one poll at a time: a record is
+     * the latest state of the video in its key, and a tombstone (null value)
+     * deletes it. Updates and deletes of a video share a key and thus a
+     * partition, so only the last record per key in a poll needs applying,
+     * and one listener thread per partition never races another on a video.
+     */
+    @KafkaListener(topics = "${kafka.topic.youtube-video-state}", groupId = "${spring.kafka.consumer.group-id}",
+        batch = "true", concurrency = "${analytics.consumer.concurrency:3}")
+    public void consume(List<ConsumerRecord<String, YoutubeVideo>> records) {
+        long startedAt = System.nanoTime();
+        Map<String, VideoStateStore.Change> latest = new LinkedHashMap<>();
+        for (ConsumerRecord<String, YoutubeVideo> record : records) {
+            VideoStateStore.Change change = toChange(record);
+            if (change != null) {
+                latest.put(change.getVideoId(), change);
+            }
+        }
+
+        try {
+            apply(latest.values());
         } catch (Exception e) {
-            logger.error("Error processing video update: ", e);
+            logger.error("Error applying batch of {} video records: ", records.size(), e);
             throw e; // Rethrow to trigger Kafka retry
         }
+
+        long nanos = System.nanoTime() - startedAt;
+        metrics.recordBatch(records.size(), latest.size(), startedAt, nanos);
+        logger.info("Applied {} changes from {} records in {} ms ({} records/s)", latest.size(), records.size(),
+            TimeUnit.NANOSECONDS.toMillis(nanos), ConsumerMetrics.rate(records.size(), nanos));
     }
 
-    @KafkaListener(topics = "${kafka.topic.youtube-delete}")
-    public void handleDeleteNotification(YoutubeVideo video) {
-        if (video == null || video.getVideoId() == null) {
-            logger.warn("Received null video or video ID for deletion");
-            return;
+    private VideoStateStore.Change toChange(ConsumerRecord<String, YoutubeVideo> record) {
+        YoutubeVideo video = record.value();
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        if (video == null) {
+            if (record.key() == null) {
+                logger.warn("Received tombstone without a video ID at {}@{}, skipping", partition, record.offset());
+                return null;
+            }
+            return VideoStateStore.Change.delete(record.key(), partition, record.offset() + 1);
+        }
+        if (video.getVideoId() == null) {
+            logger.warn("Received video without an ID at {}@{}, skipping", partition, record.offset());
+            return null;
         }
+        return VideoStateStore.Change.put(video, partition, record.offset() + 1);
+    }
 
-        String videoId = video.getVideoId();
-        logger.info("Received delete notification for video: {}", videoId);
+    /**
+     * Persists the changes with their offsets in a single append, then updates
+     * the cache and notifies the change listeners with each video's previous
+     * version. A partition is only ever applied by its own listener thread.
+     */
+    private void apply(Collection<VideoStateStore.Change> changes) {
+        stateStore.append(new ArrayList<>(changes));
+        for (VideoStateStore.Change change : changes) {
+            videoCache.compute(change.getVideoId(), (id, previous) -> {
+                if (previous != null || change.getVideo() != null) {
+                    notifyListeners(previous, change.getVideo());
+                }
+                return change.getVideo();
+            });
+        }
+    }
 
-        try {
-            videoCache.remove(videoId);
-            logger.info("Successfully deleted video from cache: {}", videoId);
-        } catch (Exception e) {
-            logger.error("Error deleting video {}: {}", videoId, e.getMessage());
+    private void notifyListeners(YoutubeVideo previous, YoutubeVideo current) {
+        for (VideoChangeListener listener : changeListeners) {
+            listener.onVideoChanged(previous, current);
         }
     }
 
     // Analytics methods
-    public List<YoutubeVideo> getAllVideos() {
-        return new ArrayList<>(videoCache.values());
+    /**
+     * One page of videos, sorted by {@code metric} and optionally filtered by
+     * channel (ID or name) and by a case-insensitive title substring. A
+     * channel page only sorts that channel's videos, taken from the channel
+     * index. The title filter has no index and is matched while walking the
+     * sorted videos, within the leaderboards' scan budget.
+     */
+    public VideoLeaderboards.Page getVideoPage(VideoLeaderboards.Metric metric, boolean ascending, String cursor,
+                                               String channel, String title, int limit) {
+        String titlePart = title != null ? title.toLowerCase(Locale.ROOT) : null;
+        Predicate<YoutubeVideo> filter = video -> titlePart == null
+            || (video.getTitle() != null && video.getTitle().toLowerCase(Locale.ROOT).contains(titlePart));
+        if (channel != null) {
+            return leaderboards.page(metric, ascending, cursor, channelIndex.videosOf(channel), filter, limit);
+        }
+        return leaderboards.page(metric, ascending, cursor, filter, limit);
     }
 
     public Map<String, Object> getAnalytics() {
         Map<String, Object> analytics = new HashMap<>();
-        List<YoutubeVideo> videos = getAllVideos();
 
-        if (videos.isEmpty()) {
+        if (aggregates.getVideoCount() == 0) {
             return Collections.emptyMap();
         }
 
-        // Calculate total statistics
-        long totalViews = 0;
-        long totalLikes = 0;
-        long totalComments = 0;
-        long totalVideos = videos.size();
-
-        // Find highest metrics
-        YoutubeVideo highestViews = null;
-        YoutubeVideo highestLikes = null;
-        YoutubeVideo highestComments = null;
-        YoutubeVideo highestSubscribers = null;
-        YoutubeVideo highestVideoCount = null;
-        YoutubeVideo highestEngagement = null;
-        double maxEngagementRate = 0.0;
-
-        for (YoutubeVideo video : videos) {
-            // Update totals
-            totalViews += video.getViewCount() != null ? video.getViewCount() : 0;
-            totalLikes += video.getLikeCount() != null ? video.getLikeCount() : 0;
-            totalComments += video.getCommentCount() != null ? video.getCommentCount() : 0;
-
-            // Calculate engagement rate for this video
-            long views = video.getViewCount() != null ? video.getViewCount() : 0;
-            long likes = video.getLikeCount() != null ? video.getLikeCount() : 0;
-            long comments = video.getCommentCount() != null ? video.getCommentCount() : 0;
-            double engagementRate = views > 0 ? ((likes + comments) * 100.0) / views : 0;
-
-            // Update highest metrics
-            if (highestViews == null || (video.getViewCount() != null && video.getViewCount() > highestViews.getViewCount())) {
-                highestViews = video;
-            }
-            if (highestLikes == null || (video.getLikeCount() != null && video.getLikeCount() > highestLikes.getLikeCount())) {
-                highestLikes = video;
-            }
-            if (highestComments == null || (video.getCommentCount() != null && video.getCommentCount() > highestComments.getCommentCount())) {
-                highestComments = video;
-            }
-            if (highestSubscribers == null || (video.getSubscriberCount() != null && video.getSubscriberCount() > highestSubscribers.getSubscriberCount())) {
-                highestSubscribers = video;
-            }
-            if (highestVideoCount == null || (video.getVideoCount() != null && video.getVideoCount() > highestVideoCount.getVideoCount())) {
-                highestVideoCount = video;
-            }
-            if (engagementRate > maxEngagementRate) {
-                maxEngagementRate = engagementRate;
-                highestEngagement = video;
-            }
-        }
-
-        // Calculate average engagement rate
-        double averageEngagementRate = totalViews > 0 ? ((totalLikes + totalComments) * 100.0) / totalViews : 0;
+        // Totals are kept up to date on every change
+        analytics.put("totalVideos", aggregates.getVideoCount());
+        analytics.put("totalChannels", channelIndex.size());
+        analytics.put("totalViews", aggregates.getTotalViews());
+        analytics.put("totalLikes", aggregates.getTotalLikes());
+        analytics.put("totalComments", aggregates.getTotalComments());
+        analytics.put("averageEngagementRate", String.format("%.2f%%", aggregates.getAverageEngagementRate()));
 
-        // Add totals to analytics
-        analytics.put("totalVideos", totalVideos);
-        analytics.put("totalViews", totalViews);
-        analytics.put("totalLikes", totalLikes);
-        analytics.put("totalComments", totalComments);
-        analytics.put("averageEngagementRate", String.format("%.2f%%", averageEngagementRate));
-
-        // Add highest metrics to analytics
+        // Highest metrics come straight from the leaderboards
         Map<String, YoutubeVideo> highest = new HashMap<>();
-        highest.put("views", highestViews);
-        highest.put("likes", highestLikes);
-        highest.put("comments", highestComments);
-        highest.put("subscribers", highestSubscribers);
-        highest.put("videos", highestVideoCount);
-        highest.put("engagement", highestEngagement);
+        for (VideoLeaderboards.Metric metric : VideoLeaderboards.Metric.values()) {
+            highest.put(metric.getKey(), leaderboards.highest(metric));
+        }
         analytics.put("highest", highest);
 
         return analytics;
     }
-} 
\ No newline at end of file
+
+    public List<YoutubeVideo> getTopVideos(VideoLeaderboards.Metric metric, int limit) {
+        return leaderboards.top(metric, limit);
+    }
+
+    public List<ChannelIndex.ChannelSummary> getTopChannels(int limit) {
+        return channelIndex.top(limit);
+    }
+
+    public ChannelIndex.ChannelSummary getChannel(String channel) {
+        return channelIndex.get(channel);
+    }
+
+    public List<VideoVelocityTracker.Trend> getTrendingVideos(int limit) {
+        return velocityTracker.top(limit);
+    }
+
+    public Map<String, Object> getConsumerStats() {
+        return metrics.getStats();
+    }
+}
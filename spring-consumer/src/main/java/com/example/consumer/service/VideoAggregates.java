@@ -0,0 +1,61 @@
+package com.example.consumer.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Running totals over all stored videos, updated with the difference between
+ * the old and the new version of a video on every change, so reading them
+ * costs the same regardless of how many videos are stored.
+ */
+@Service
+public class VideoAggregates implements VideoChangeListener {
+
+    private final AtomicLong videoCount = new AtomicLong();
+    private final AtomicLong totalViews = new AtomicLong();
+    private final AtomicLong totalLikes = new AtomicLong();
+    private final AtomicLong totalComments = new AtomicLong();
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        if (previous == null && current != null) {
+            videoCount.incrementAndGet();
+        } else if (previous != null && current == null) {
+            videoCount.decrementAndGet();
+        }
+        totalViews.addAndGet(valueOf(current != null ? current.getViewCount() : null)
+            - valueOf(previous != null ? previous.getViewCount() : null));
+        totalLikes.addAndGet(valueOf(current != null ? current.getLikeCount() : null)
+            - valueOf(previous != null ? previous.getLikeCount() : null));
+        totalComments.addAndGet(valueOf(current != null ? current.getCommentCount() : null)
+            - valueOf(previous != null ? previous.getCommentCount() : null));
+    }
+
+    public long getVideoCount() {
+        return videoCount.get();
+    }
+
+    public long getTotalViews() {
+        return totalViews.get();
+    }
+
+    public long getTotalLikes() {
+        return totalLikes.get();
+    }
+
+    public long getTotalComments() {
+        return totalComments.get();
+    }
+
+    public double getAverageEngagementRate() {
+        long views = totalViews.get();
+        return views > 0 ? ((totalLikes.get() + totalComments.get()) * 100.0) / views : 0;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
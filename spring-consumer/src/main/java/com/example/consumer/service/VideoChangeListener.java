@@ -0,0 +1,21 @@
+package com.example.consumer.service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Notified by {@link KafkaConsumerService} whenever the stored state of a
+ * video changes, so derived views (totals, indexes, ...) can be updated from
+ * the delta instead of rescanning every video.
+ *
+ * Calls for the same video never overlap and arrive in the order the changes
+ * were applied. Implementations must be fast and must not call back into
+ * {@link KafkaConsumerService}.
+ */
+public interface VideoChangeListener {
+
+    /**
+     * @param previous the stored video before the change, or {@code null} if it is new
+     * @param current  the stored video after the change, or {@code null} if it was deleted
+     */
+    void onVideoChanged(YoutubeVideo previous, YoutubeVideo current);
+}
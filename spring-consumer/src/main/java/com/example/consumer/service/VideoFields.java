@@ -0,0 +1,60 @@
+package com.example.consumer.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * The fields of {@link YoutubeVideo} by their JSON name, for building partial
+ * representations (field projections and change deltas) without reflection.
+ */
+public final class VideoFields {
+
+    public static final Map<String, Function<YoutubeVideo, Object>> ALL;
+
+    static {
+        Map<String, Function<YoutubeVideo, Object>> fields = new LinkedHashMap<>();
+        fields.put("videoId", YoutubeVideo::getVideoId);
+        fields.put("title", YoutubeVideo::getTitle);
+        fields.put("channelId", YoutubeVideo::getChannelId);
+        fields.put("channelName", YoutubeVideo::getChannelName);
+        fields.put("viewCount", YoutubeVideo::getViewCount);
+        fields.put("likeCount", YoutubeVideo::getLikeCount);
+        fields.put("commentCount", YoutubeVideo::getCommentCount);
+        fields.put("subscriberCount", YoutubeVideo::getSubscriberCount);
+        fields.put("videoCount", YoutubeVideo::getVideoCount);
+        fields.put("commentText", YoutubeVideo::getCommentText);
+        fields.put("videoUrl", YoutubeVideo::getVideoUrl);
+        fields.put("receivedAt", YoutubeVideo::getReceivedAt);
+        fields.put("lastUpdated", YoutubeVideo::getLastUpdated);
+        ALL = Collections.unmodifiableMap(fields);
+    }
+
+    private VideoFields() {
+    }
+
+    /**
+     * Checks that every name is a known field.
+     *
+     * @throws IllegalArgumentException for an unknown field
+     */
+    public static void validate(Collection<String> names) {
+        for (String name : names) {
+            if (!ALL.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field: " + name);
+            }
+        }
+    }
+
+    public static Map<String, Object> project(YoutubeVideo video, Collection<String> names) {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        for (String name : names) {
+            projection.put(name, ALL.get(name).apply(video));
+        }
+        return projection;
+    }
+}
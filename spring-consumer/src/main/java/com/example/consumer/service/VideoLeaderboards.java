@@ -0,0 +1,239 @@
+package com.example.consumer.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * One sorted index per metric, highest first, kept up to date on every
+ * change: an update is a remove and an insert in each skip list (O(log n)),
+ * and the top k of a metric is the first k entries (O(k)). The same indexes
+ * serve sorted, cursor-paginated listings of all videos.
+ */
+@Service
+public class VideoLeaderboards implements VideoChangeListener {
+
+    public enum Metric {
+        VIEWS("views", video -> valueOf(video.getViewCount())),
+        LIKES("likes", video -> valueOf(video.getLikeCount())),
+        COMMENTS("comments", video -> valueOf(video.getCommentCount())),
+        SUBSCRIBERS("subscribers", video -> valueOf(video.getSubscriberCount())),
+        VIDEOS("videos", video -> valueOf(video.getVideoCount())),
+        ENGAGEMENT("engagement", Metric::engagementRate);
+
+        private final String key;
+        private final ToDoubleFunction<YoutubeVideo> score;
+
+        Metric(String key, ToDoubleFunction<YoutubeVideo> score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public double scoreOf(YoutubeVideo video) {
+            return score.applyAsDouble(video);
+        }
+
+        public static Metric fromKey(String key) {
+            for (Metric metric : values()) {
+                if (metric.key.equalsIgnoreCase(key)) {
+                    return metric;
+                }
+            }
+            throw new IllegalArgumentException("Unknown metric: " + key);
+        }
+
+        /** Likes and comments per 100 views. */
+        public static double engagementRate(YoutubeVideo video) {
+            long views = valueOf(video.getViewCount());
+            long interactions = valueOf(video.getLikeCount()) + valueOf(video.getCommentCount());
+            return views > 0 ? (interactions * 100.0) / views : 0;
+        }
+
+        private static long valueOf(Long value) {
+            return value != null ? value : 0L;
+        }
+    }
+
+    private static class Ranked {
+        private final double score;
+        private final String videoId;
+        private final YoutubeVideo video;
+
+        private Ranked(double score, String videoId, YoutubeVideo video) {
+            this.score = score;
+            this.videoId = videoId;
+            this.video = video;
+        }
+    }
+
+    // Highest score first; the video ID breaks ties so every video has exactly one slot
+    private static final Comparator<Ranked> ORDER = Comparator
+        .comparingDouble((Ranked ranked) -> ranked.score).reversed()
+        .thenComparing(ranked -> ranked.videoId);
+
+    private final Map<Metric, NavigableSet<Ranked>> indexes = new EnumMap<>(Metric.class);
+
+    @Value("${analytics.videos.max-scan:10000}")
+    private int maxScan;
+
+    public VideoLeaderboards() {
+        for (Metric metric : Metric.values()) {
+            indexes.put(metric, new ConcurrentSkipListSet<>(ORDER));
+        }
+    }
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        for (Map.Entry<Metric, NavigableSet<Ranked>> index : indexes.entrySet()) {
+            Metric metric = index.getKey();
+            if (previous != null) {
+                index.getValue().remove(new Ranked(metric.scoreOf(previous), previous.getVideoId(), null));
+            }
+            if (current != null) {
+                index.getValue().add(new Ranked(metric.scoreOf(current), current.getVideoId(), current));
+            }
+        }
+    }
+
+    /**
+     * The {@code limit} videos with the highest value of {@code metric}.
+     */
+    public List<YoutubeVideo> top(Metric metric, int limit) {
+        List<YoutubeVideo> top = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Ranked> iterator = indexes.get(metric).iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next().video);
+        }
+        return top;
+    }
+
+    public YoutubeVideo highest(Metric metric) {
+        Iterator<Ranked> iterator = indexes.get(metric).iterator();
+        return iterator.hasNext() ? iterator.next().video : null;
+    }
+
+    public static class Page {
+        private final List<YoutubeVideo> videos;
+        private final String nextCursor;
+
+        public Page(List<YoutubeVideo> videos, String nextCursor) {
+            this.videos = videos;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<YoutubeVideo> getVideos() { return videos; }
+        /** Cursor for the following page, or {@code null} on the last page. */
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    /**
+     * Up to {@code limit} videos matching {@code filter}, ordered by
+     * {@code metric}, starting after {@code cursor} (a value from a previous
+     * {@link Page#getNextCursor()}, or {@code null} for the first page). The
+     * cursor seeks straight into the index, so a page costs O(log n + k) when
+     * the filter matches. A filter that rarely matches has to walk the index:
+     * the walk stops after {@code analytics.videos.max-scan} videos, and the
+     * page may then come back short, or empty, with a cursor to go on from.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or belongs to another ordering
+     */
+    public Page page(Metric metric, boolean ascending, String cursor, Predicate<YoutubeVideo> filter, int limit) {
+        return page(indexes.get(metric), metric, ascending, cursor, filter, limit);
+    }
+
+    /**
+     * Like {@link #page(Metric, boolean, String, Predicate, int)}, over just
+     * {@code videos} instead of every video. Sorting them costs O(m log m)
+     * for m videos, so this suits a small subset such as one channel.
+     */
+    public Page page(Metric metric, boolean ascending, String cursor, Collection<YoutubeVideo> videos,
+                     Predicate<YoutubeVideo> filter, int limit) {
+        NavigableSet<Ranked> index = new TreeSet<>(ORDER);
+        for (YoutubeVideo video : videos) {
+            index.add(new Ranked(metric.scoreOf(video), video.getVideoId(), video));
+        }
+        return page(index, metric, ascending, cursor, filter, limit);
+    }
+
+    private Page page(NavigableSet<Ranked> index, Metric metric, boolean ascending, String cursor,
+                      Predicate<YoutubeVideo> filter, int limit) {
+        if (ascending) {
+            index = index.descendingSet();
+        }
+        if (cursor != null) {
+            index = index.tailSet(decodeCursor(cursor, metric, ascending), false);
+        }
+
+        List<Ranked> matches = new ArrayList<>(Math.min(limit + 1, 256));
+        Ranked lastScanned = null;
+        int scanned = 0;
+        Iterator<Ranked> iterator = index.iterator();
+        while (iterator.hasNext() && scanned < Math.max(maxScan, limit + 1)) {
+            Ranked ranked = iterator.next();
+            lastScanned = ranked;
+            scanned++;
+            if (filter.test(ranked.video)) {
+                matches.add(ranked);
+                // One extra match tells whether there is a next page
+                if (matches.size() > limit) {
+                    break;
+                }
+            }
+        }
+
+        String nextCursor = null;
+        if (matches.size() > limit) {
+            matches.remove(limit);
+            nextCursor = encodeCursor(metric, ascending, matches.get(limit - 1));
+        } else if (iterator.hasNext()) {
+            // Out of scan budget: go on after the last video looked at
+            nextCursor = encodeCursor(metric, ascending, lastScanned);
+        }
+        List<YoutubeVideo> videos = new ArrayList<>(matches.size());
+        for (Ranked ranked : matches) {
+            videos.add(ranked.video);
+        }
+        return new Page(videos, nextCursor);
+    }
+
+    private static String encodeCursor(Metric metric, boolean ascending, Ranked last) {
+        String cursor = metric.getKey() + ":" + (ascending ? "asc" : "desc") + ":" + last.score + ":" + last.videoId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Ranked decodeCursor(String cursor, Metric metric, boolean ascending) {
+        String[] parts;
+        double score;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+            score = parts.length == 4 ? Double.parseDouble(parts[2]) : 0;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(metric.getKey())
+                || !parts[1].equals(ascending ? "asc" : "desc")) {
+            throw new IllegalArgumentException("Cursor does not belong to this sort order");
+        }
+        return new Ranked(score, parts[3], null);
+    }
+}
@@ -0,0 +1,371 @@
+package com.example.consumer.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Local, durable copy of the consumer's video state, so a restart reloads it
+ * from disk and resumes each partition where it stopped instead of replaying
+ * the topics from the beginning.
+ *
+ * The store is a single append-only log. Each entry is a frame of
+ * {@code length, crc32, payload} holding a video upsert or delete together
+ * with the next Kafka offset of the partition it came from, so the state and
+ * the offsets can never disagree. A torn or corrupt tail (e.g. after a crash)
+ * is cut off at load time. Once the log holds many more entries than there
+ * are live videos it is rewritten as a compact snapshot.
+ */
+@Service
+public class VideoStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStateStore.class);
+
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte OFFSET = 3;
+
+    /** A change to apply, with the position of the Kafka record it came from. */
+    public static class Change {
+        private final String videoId;
+        private final YoutubeVideo video;
+        private final TopicPartition partition;
+        private final long nextOffset;
+
+        private Change(String videoId, YoutubeVideo video, TopicPartition partition, long nextOffset) {
+            this.videoId = videoId;
+            this.video = video;
+            this.partition = partition;
+            this.nextOffset = nextOffset;
+        }
+
+        public static Change put(YoutubeVideo video, TopicPartition partition, long nextOffset) {
+            return new Change(video.getVideoId(), video, partition, nextOffset);
+        }
+
+        public static Change delete(String videoId, TopicPartition partition, long nextOffset) {
+            return new Change(videoId, null, partition, nextOffset);
+        }
+
+        public String getVideoId() { return videoId; }
+        /** The new state, or {@code null} for a delete. */
+        public YoutubeVideo getVideo() { return video; }
+    }
+
+    private final Path logFile;
+    private final boolean fsync;
+    private final long compactMinEntries;
+
+    private final Map<String, YoutubeVideo> videos = new ConcurrentHashMap<>();
+    private final Map<TopicPartition, Long> offsets = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private long entries;
+
+    public VideoStateStore(@Value("${analytics.store.file:data/video-state.log}") String logFile,
+                           @Value("${analytics.store.fsync:false}") boolean fsync,
+                           @Value("${analytics.store.compact-min-entries:10000}") long compactMinEntries) {
+        this.logFile = Paths.get(logFile);
+        this.fsync = fsync;
+        this.compactMinEntries = compactMinEntries;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Path parent = logFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long validLength = Files.exists(logFile) ? replay() : 0;
+
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            logger.warn("Discarding {} bytes of incomplete entries at the end of {}",
+                channel.size() - validLength, logFile);
+            channel.truncate(validLength);
+        }
+        channel.position(validLength);
+        logger.info("Opened video state store {} ({} videos, {} partition offsets)", logFile, videos.size(), offsets.size());
+
+        // Start from a compact log so restarts stay fast
+        if (entries > videos.size() + offsets.size()) {
+            compact();
+        }
+    }
+
+    /** Videos restored from disk. */
+    public Collection<YoutubeVideo> getVideos() {
+        return videos.values();
+    }
+
+    /** Next offset to read per partition, for the partitions seen so far. */
+    public Map<TopicPartition, Long> getOffsets() {
+        return new HashMap<>(offsets);
+    }
+
+    /**
+     * Appends the changes and their offsets to the log in one write.
+     */
+    public synchronized void append(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 * changes.size());
+            for (Change change : changes) {
+                writeFrame(buffer, change.video != null ? PUT : DELETE, change.videoId, change.video,
+                    change.partition, change.nextOffset);
+            }
+            write(channel, buffer.toByteArray());
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to video state store " + logFile, e);
+        }
+
+        for (Change change : changes) {
+            if (change.video != null) {
+                videos.put(change.videoId, change.video);
+            } else {
+                videos.remove(change.videoId);
+            }
+            offsets.merge(change.partition, change.nextOffset, Math::max);
+        }
+        entries += changes.size();
+        if (entries >= compactMinEntries && entries > 2L * (videos.size() + offsets.size())) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the log as one entry per live video plus one per partition
+     * offset, replacing the old file atomically.
+     */
+    private void compact() {
+        Path tempFile = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        try {
+            try (FileChannel out = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+                for (YoutubeVideo video : videos.values()) {
+                    writeFrame(buffer, PUT, video.getVideoId(), video, null, 0);
+                    if (buffer.size() > 60 * 1024) {
+                        write(out, buffer.toByteArray());
+                        buffer.reset();
+                    }
+                }
+                for (Map.Entry<TopicPartition, Long> offset : offsets.entrySet()) {
+                    writeFrame(buffer, OFFSET, null, null, offset.getKey(), offset.getValue());
+                }
+                write(out, buffer.toByteArray());
+                out.force(true);
+            }
+            channel.close();
+            Files.move(tempFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(logFile, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+            logger.info("Compacted video state store from {} to {} entries", entries, videos.size() + offsets.size());
+            entries = videos.size() + offsets.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact video state store " + logFile, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null && channel.isOpen()) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    /** Loads every intact entry and returns the length of the intact prefix. */
+    private long replay() throws IOException {
+        long validLength = 0;
+        long fileSize = Files.size(logFile);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (validLength < fileSize) {
+                int length = in.readInt();
+                if (length < 0 || validLength + 8 + length > fileSize) {
+                    break;
+                }
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (checksum != crc(payload)) {
+                    logger.warn("Checksum mismatch in {} at byte {}", logFile, validLength);
+                    break;
+                }
+                apply(payload);
+                entries++;
+                validLength += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Truncated last entry; everything before it is kept
+        }
+        return validLength;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        if (type == OFFSET) {
+            offsets.put(new TopicPartition(in.readUTF(), in.readInt()), in.readLong());
+            return;
+        }
+        String videoId = in.readUTF();
+        if (in.readBoolean()) {
+            offsets.put(new TopicPartition(in.readUTF(), in.readInt()), in.readLong());
+        }
+        if (type == PUT) {
+            videos.put(videoId, readVideo(in, videoId));
+        } else {
+            videos.remove(videoId);
+        }
+    }
+
+    private static void write(FileChannel target, byte[] frames) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static void writeFrame(ByteArrayOutputStream buffer, byte type, String videoId, YoutubeVideo video,
+                                   TopicPartition partition, long offset) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(256);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        payload.writeByte(type);
+        if (type == OFFSET) {
+            payload.writeUTF(partition.topic());
+            payload.writeInt(partition.partition());
+            payload.writeLong(offset);
+        } else {
+            payload.writeUTF(videoId);
+            payload.writeBoolean(partition != null);
+            if (partition != null) {
+                payload.writeUTF(partition.topic());
+                payload.writeInt(partition.partition());
+                payload.writeLong(offset);
+            }
+            if (type == PUT) {
+                writeVideo(payload, video);
+            }
+        }
+        payload.flush();
+
+        byte[] bytes = payloadBytes.toByteArray();
+        DataOutputStream frame = new DataOutputStream(buffer);
+        frame.writeInt(bytes.length);
+        frame.writeInt(crc(bytes));
+        frame.write(bytes);
+        frame.flush();
+    }
+
+    private static void writeVideo(DataOutputStream out, YoutubeVideo video) throws IOException {
+        writeString(out, video.getTitle());
+        writeString(out, video.getChannelName());
+        writeLong(out, video.getSubscriberCount());
+        writeLong(out, video.getVideoCount());
+        writeLong(out, video.getCommentCount());
+        writeString(out, video.getCommentText());
+        writeLong(out, video.getLikeCount());
+        writeLong(out, video.getViewCount());
+        writeString(out, video.getVideoUrl());
+        writeLong(out, video.getReceivedAt() != null ? video.getReceivedAt().toEpochMilli() : null);
+        writeLong(out, video.getLastUpdated() != null ? video.getLastUpdated().toEpochMilli() : null);
+        writeString(out, video.getChannelId());
+    }
+
+    private static YoutubeVideo readVideo(DataInputStream in, String videoId) throws IOException {
+        YoutubeVideo video = new YoutubeVideo();
+        video.setVideoId(videoId);
+        video.setTitle(readString(in));
+        video.setChannelName(readString(in));
+        video.setSubscriberCount(readLong(in));
+        video.setVideoCount(readLong(in));
+        video.setCommentCount(readLong(in));
+        video.setCommentText(readString(in));
+        video.setLikeCount(readLong(in));
+        video.setViewCount(readLong(in));
+        video.setVideoUrl(readString(in));
+        Long receivedAt = readLong(in);
+        video.setReceivedAt(receivedAt != null ? Instant.ofEpochMilli(receivedAt) : null);
+        Long lastUpdated = readLong(in);
+        video.setLastUpdated(lastUpdated != null ? Instant.ofEpochMilli(lastUpdated) : null);
+        // Entries written before the channel ID was stored end here
+        if (in.available() > 0) {
+            video.setChannelId(readString(in));
+        }
+        return video;
+    }
+
+    // Strings are length-prefixed UTF-8 (comments can exceed writeUTF's 64 KB limit), -1 for null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.consumer.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Growth rates of each video over a sliding window of its recent samples.
+ * Every change is a sample taken when the producer fetched the statistics;
+ * a small ring buffer per video holds the last samples, and the rates are
+ * the difference between the newest sample and the oldest one still in the
+ * window, so a record costs O(1) plus one re-insert in the trending index
+ * (O(log n)). Videos whose newest sample has left the window drop out of the
+ * index on the next sweep, since unchanged videos are not published again.
+ */
+@Service
+public class VideoVelocityTracker implements VideoChangeListener {
+
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final NavigableSet<Trend> trending = new ConcurrentSkipListSet<>(Comparator
+        .comparingDouble(Trend::getScore).reversed()
+        .thenComparing(Trend::getVideoId));
+
+    private final int windowSamples;
+    private final long windowMillis;
+    private final double likeWeight;
+
+    public VideoVelocityTracker(@Value("${analytics.trending.window-samples:16}") int windowSamples,
+                                @Value("${analytics.trending.window:3600000}") long windowMillis,
+                                @Value("${analytics.trending.like-weight:10}") double likeWeight) {
+        this.windowSamples = Math.max(2, windowSamples);
+        this.windowMillis = windowMillis;
+        this.likeWeight = likeWeight;
+    }
+
+    /** A video's growth over its current window. */
+    public static class Trend {
+        private final String videoId;
+        private final String title;
+        private final String channelName;
+        private final Long viewCount;
+        private final Long likeCount;
+        private final double viewsPerHour;
+        private final double likesPerHour;
+        private final double score;
+        private final Instant since;
+        private final Instant until;
+
+        public Trend(YoutubeVideo video, double viewsPerHour, double likesPerHour, double score,
+                     Instant since, Instant until) {
+            this.videoId = video.getVideoId();
+            this.title = video.getTitle();
+            this.channelName = video.getChannelName();
+            this.viewCount = video.getViewCount();
+            this.likeCount = video.getLikeCount();
+            this.viewsPerHour = viewsPerHour;
+            this.likesPerHour = likesPerHour;
+            this.score = score;
+            this.since = since;
+            this.until = until;
+        }
+
+        public String getVideoId() { return videoId; }
+        public String getTitle() { return title; }
+        public String getChannelName() { return channelName; }
+        public Long getViewCount() { return viewCount; }
+        public Long getLikeCount() { return likeCount; }
+        public double getViewsPerHour() { return viewsPerHour; }
+        public double getLikesPerHour() { return likesPerHour; }
+        public double getScore() { return score; }
+        /** Time of the oldest sample the rates are measured from. */
+        public Instant getSince() { return since; }
+        /** Time of the newest sample. */
+        public Instant getUntil() { return until; }
+    }
+
+    /** Ring buffer of one video's last samples, oldest at {@code head}. */
+    private static class Window {
+        private final long[] times;
+        private final long[] views;
+        private final long[] likes;
+        private int head;
+        private int size;
+        private Trend trend;
+
+        private Window(int capacity) {
+            times = new long[capacity];
+            views = new long[capacity];
+            likes = new long[capacity];
+        }
+
+        private int newest() {
+            return (head + size - 1) % times.length;
+        }
+
+        private void add(long time, long viewCount, long likeCount) {
+            int slot = (head + size) % times.length;
+            if (size == times.length) {
+                head = (head + 1) % times.length;
+            } else {
+                size++;
+            }
+            times[slot] = time;
+            views[slot] = viewCount;
+            likes[slot] = likeCount;
+        }
+    }
+
+    @Override
+    public void onVideoChanged(YoutubeVideo previous, YoutubeVideo current) {
+        if (current == null) {
+            Window window = windows.remove(previous.getVideoId());
+            if (window != null) {
+                synchronized (window) {
+                    setTrend(window, null);
+                }
+            }
+            return;
+        }
+
+        long time = current.getLastUpdated() != null
+            ? current.getLastUpdated().toEpochMilli() : System.currentTimeMillis();
+        Window window = windows.computeIfAbsent(current.getVideoId(), id -> new Window(windowSamples));
+        synchronized (window) {
+            // Replayed or duplicate records carry no new sample
+            if (window.size > 0 && time <= window.times[window.newest()]) {
+                return;
+            }
+            window.add(time, valueOf(current.getViewCount()), valueOf(current.getLikeCount()));
+            // Each sample leaves the window at most once, so this is O(1) amortized
+            while (window.size > 1 && window.times[window.head] < time - windowMillis) {
+                window.head = (window.head + 1) % window.times.length;
+                window.size--;
+            }
+            setTrend(window, window.size > 1 ? measure(window, current) : null);
+        }
+    }
+
+    private Trend measure(Window window, YoutubeVideo video) {
+        int oldest = window.head;
+        int newest = window.newest();
+        double hours = (window.times[newest] - window.times[oldest]) / MILLIS_PER_HOUR;
+        double viewsPerHour = (window.views[newest] - window.views[oldest]) / hours;
+        double likesPerHour = (window.likes[newest] - window.likes[oldest]) / hours;
+        // Damped by the video's size, so a small video taking off can outrank
+        // a huge one that grows by the same absolute amount
+        double score = Math.max(0, viewsPerHour + likeWeight * likesPerHour)
+            / Math.log10(valueOf(video.getViewCount()) + 10);
+        return new Trend(video, round(viewsPerHour), round(likesPerHour), round(score),
+            Instant.ofEpochMilli(window.times[oldest]), Instant.ofEpochMilli(window.times[newest]));
+    }
+
+    private void setTrend(Window window, Trend trend) {
+        if (window.trend != null) {
+            trending.remove(window.trend);
+        }
+        window.trend = trend;
+        if (trend != null && trend.getScore() > 0) {
+            trending.add(trend);
+        }
+    }
+
+    /** Drops trends whose newest sample has left the window. */
+    @Scheduled(fixedDelayString = "${analytics.trending.sweep-interval:60000}")
+    public void sweep() {
+        long cutoff = System.currentTimeMillis() - windowMillis;
+        for (Window window : windows.values()) {
+            synchronized (window) {
+                if (window.trend != null && window.times[window.newest()] < cutoff) {
+                    setTrend(window, null);
+                }
+            }
+        }
+    }
+
+    /** The {@code limit} fastest growing videos, by trending score. */
+    public List<Trend> top(int limit) {
+        List<Trend> top = new ArrayList<>(Math.min(limit, 64));
+        Iterator<Trend> iterator = trending.iterator();
+        while (top.size() < limit && iterator.hasNext()) {
+            top.add(iterator.next());
+        }
+        return top;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
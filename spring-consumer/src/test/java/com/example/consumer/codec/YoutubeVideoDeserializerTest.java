@@ -0,0 +1,115 @@
+package com.example.consumer.codec;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.consumer.model.YoutubeVideo;
+
+/**
+ * Reads the records the producer's codec test pins in
+ * {@code codec-fixtures/youtube-video.properties}.
+ */
+class YoutubeVideoDeserializerTest {
+
+    // Field 90 as a varint (42) and field 91 as bytes ("abc"), unknown to every reader
+    private static final String UNKNOWN_FIELDS = "d00554" + "da0503616263";
+
+    private static Properties fixtures;
+
+    private final YoutubeVideoDeserializer deserializer = new YoutubeVideoDeserializer();
+
+    @BeforeAll
+    static void loadFixtures() throws IOException {
+        fixtures = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of("..", "codec-fixtures", "youtube-video.properties"))) {
+            fixtures.load(reader);
+        }
+    }
+
+    @AfterEach
+    void closeDeserializer() {
+        deserializer.close();
+    }
+
+    private static byte[] fixture(String name) {
+        return HexFormat.of().parseHex(fixtures.getProperty(name));
+    }
+
+    @Test
+    void readsEveryFieldTheProducerWrites() {
+        YoutubeVideo video = deserializer.deserialize("youtube-video-state", fixture("full"));
+
+        assertEquals("dQw4w9WgXcQ", video.getVideoId());
+        assertEquals("Never Gonna Give You Up", video.getTitle());
+        assertEquals("UCuAXFkgsw1L7xaCfnd5JJOw", video.getChannelId());
+        assertEquals("Rick Astley", video.getChannelName());
+        assertEquals(1_500_000_000L, video.getViewCount());
+        assertEquals(17_000_000L, video.getLikeCount());
+        assertEquals(2_300_000L, video.getCommentCount());
+        assertEquals("Still a classic 🎵", video.getCommentText());
+        assertEquals("https://www.youtube.com/watch?v=dQw4w9WgXcQ", video.getVideoUrl());
+        assertEquals(Instant.parse("2026-10-17T12:00:00Z"), video.getLastUpdated());
+        assertEquals(4_200_000L, video.getSubscriberCount());
+        assertEquals(130L, video.getVideoCount());
+    }
+
+    @Test
+    void leavesOmittedFieldsNull() {
+        YoutubeVideo video = deserializer.deserialize("youtube-video-state", fixture("sparse"));
+
+        assertEquals("dQw4w9WgXcQ", video.getVideoId());
+        assertEquals(0L, video.getViewCount());
+        assertNull(video.getTitle());
+        assertNull(video.getChannelId());
+        assertNull(video.getChannelName());
+        assertNull(video.getLikeCount());
+        assertNull(video.getCommentText());
+        assertNull(video.getLastUpdated());
+        assertNull(video.getSubscriberCount());
+    }
+
+    @Test
+    void skipsUnknownFields() {
+        byte[] data = HexFormat.of().parseHex(fixtures.getProperty("sparse") + UNKNOWN_FIELDS);
+
+        YoutubeVideo video = deserializer.deserialize("youtube-video-state", data);
+
+        assertEquals("dQw4w9WgXcQ", video.getVideoId());
+        assertEquals(0L, video.getViewCount());
+    }
+
+    @Test
+    void rejectsNewerVersions() {
+        byte[] data = fixture("sparse");
+        data[1] = (byte) (WireFormat.VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize("youtube-video-state", data));
+    }
+
+    @Test
+    void fallsBackToJsonWithoutTheMagicByte() {
+        String json = "{\"videoId\":\"dQw4w9WgXcQ\",\"title\":\"Never Gonna Give You Up\",\"viewCount\":42,"
+            + "\"fetchedAt\":\"2026-10-17T12:00:00Z\",\"unknownField\":true}";
+
+        YoutubeVideo video = deserializer.deserialize("youtube-video-state", json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("dQw4w9WgXcQ", video.getVideoId());
+        assertEquals("Never Gonna Give You Up", video.getTitle());
+        assertEquals(42L, video.getViewCount());
+        assertEquals(Instant.parse("2026-10-17T12:00:00Z"), video.getLastUpdated());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.consumer.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.consumer.model.YoutubeVideo;
+import com.example.consumer.service.VideoStateStore.Change;
+
+class VideoStateStoreTest {
+
+    private static final TopicPartition P0 = new TopicPartition("youtube-video-state", 0);
+    private static final TopicPartition P1 = new TopicPartition("youtube-video-state", 1);
+
+    @TempDir
+    Path dir;
+
+    private VideoStateStore open(Path file, long compactMinEntries) throws IOException {
+        VideoStateStore store = new VideoStateStore(file.toString(), false, compactMinEntries);
+        store.open();
+        return store;
+    }
+
+    private static YoutubeVideo video(String videoId, long views) {
+        YoutubeVideo video = new YoutubeVideo();
+        video.setVideoId(videoId);
+        video.setTitle("Video " + videoId);
+        video.setChannelId("UCchannel");
+        video.setChannelName("Channel");
+        video.setViewCount(views);
+        video.setCommentText(null);
+        video.setLastUpdated(Instant.ofEpochMilli(1_000_000L + views));
+        return video;
+    }
+
+    private static Map<String, Long> viewsById(VideoStateStore store) {
+        Map<String, Long> views = new HashMap<>();
+        for (YoutubeVideo video : store.getVideos()) {
+            views.put(video.getVideoId(), video.getViewCount());
+        }
+        return views;
+    }
+
+    /** Appends four batches and returns the file size after each one. */
+    private long[] appendBatches(Path file) throws IOException {
+        VideoStateStore store = open(file, 10_000);
+        long[] sizes = new long[4];
+        store.append(List.of(Change.put(video("a", 1), P0, 1), Change.put(video("b", 2), P0, 2)));
+        sizes[0] = Files.size(file);
+        store.append(List.of(Change.put(video("c", 3), P1, 1)));
+        sizes[1] = Files.size(file);
+        store.append(List.of(Change.delete("a", P0, 3)));
+        sizes[2] = Files.size(file);
+        store.append(List.of(Change.put(video("d", 4), P0, 4)));
+        sizes[3] = Files.size(file);
+        store.close();
+        return sizes;
+    }
+
+    @Test
+    void restoresVideosAndOffsets() throws IOException {
+        Path file = dir.resolve("state.log");
+        appendBatches(file);
+
+        VideoStateStore store = open(file, 10_000);
+
+        assertEquals(Map.of("b", 2L, "c", 3L, "d", 4L), viewsById(store));
+        assertEquals(Map.of(P0, 4L, P1, 1L), store.getOffsets());
+        store.close();
+    }
+
+    @Test
+    void cutsOffATornLastEntry() throws IOException {
+        Path file = dir.resolve("state.log");
+        long[] sizes = appendBatches(file);
+        // Crash half way through writing the last entry
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(sizes[3] - 5);
+        }
+
+        VideoStateStore store = open(file, 10_000);
+
+        assertEquals(Map.of("b", 2L, "c", 3L), viewsById(store));
+        assertEquals(Map.of(P0, 3L, P1, 1L), store.getOffsets());
+        assertEquals(sizes[2], Files.size(file));
+
+        // New entries go right after the intact prefix
+        store.append(List.of(Change.put(video("e", 5), P1, 2)));
+        store.close();
+        VideoStateStore reopened = open(file, 10_000);
+        assertEquals(Map.of("b", 2L, "c", 3L, "e", 5L), viewsById(reopened));
+        assertEquals(Map.of(P0, 3L, P1, 2L), reopened.getOffsets());
+        reopened.close();
+    }
+
+    @Test
+    void stopsAtAnEntryWithABadChecksum() throws IOException {
+        Path file = dir.resolve("state.log");
+        long[] sizes = appendBatches(file);
+        // Flip a payload byte of the third entry (the delete of "a")
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long position = sizes[1] + 8 + 3;
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xFF);
+        }
+
+        VideoStateStore store = open(file, 10_000);
+
+        // Everything from the corrupt entry on is dropped, offsets included
+        assertEquals(Map.of("a", 1L, "b", 2L, "c", 3L), viewsById(store));
+        assertEquals(Map.of(P0, 2L, P1, 1L), store.getOffsets());
+        store.close();
+    }
+
+    @Test
+    void compactsToOneEntryPerVideoAndPartition() throws IOException {
+        Path file = dir.resolve("state.log");
+        VideoStateStore store = open(file, 10);
+        for (int i = 1; i <= 40; i++) {
+            TopicPartition partition = i % 2 == 0 ? P0 : P1;
+            store.append(List.of(Change.put(video(i % 2 == 0 ? "a" : "b", i), partition, 100 + i)));
+        }
+        store.append(List.of(Change.put(video("c", 50), P0, 141)));
+        store.append(List.of(Change.delete("c", P0, 142)));
+
+        assertEquals(Map.of("a", 40L, "b", 39L), viewsById(store));
+        assertEquals(Map.of(P0, 142L, P1, 139L), store.getOffsets());
+        // 42 appends, compacted whenever the log reached twice the live entries
+        assertTrue(frameCount(file) < 10, "log was not compacted: " + frameCount(file) + " entries");
+        store.close();
+
+        VideoStateStore reopened = open(file, 10);
+        assertEquals(Map.of("a", 40L, "b", 39L), viewsById(reopened));
+        assertEquals(Map.of(P0, 142L, P1, 139L), reopened.getOffsets());
+        YoutubeVideo a = reopened.getVideos().stream()
+            .filter(video -> video.getVideoId().equals("a")).findFirst().orElseThrow();
+        assertEquals("Video a", a.getTitle());
+        assertEquals("UCchannel", a.getChannelId());
+        assertEquals(Instant.ofEpochMilli(1_000_040L), a.getLastUpdated());
+        reopened.close();
+    }
+
+    @Test
+    void compactsALogWithDeadEntriesOnOpen() throws IOException {
+        Path file = dir.resolve("state.log");
+        appendBatches(file);
+        assertEquals(5, frameCount(file));
+
+        VideoStateStore store = open(file, 10_000);
+
+        // Five entries for three live videos and two partitions: nothing to drop yet
+        assertEquals(5, frameCount(file));
+        store.append(List.of(Change.put(video("b", 20), P0, 5)));
+        store.append(List.of(Change.put(video("b", 21), P0, 6)));
+        store.close();
+
+        // Two superseded entries for "b", below the size threshold but dropped on open
+        VideoStateStore reopened = open(file, 10_000);
+        assertEquals(5, frameCount(file));
+        assertEquals(Map.of("b", 21L, "c", 3L, "d", 4L), viewsById(reopened));
+        assertEquals(Map.of(P0, 6L, P1, 1L), reopened.getOffsets());
+        reopened.close();
+    }
+
+    private static int frameCount(Path file) throws IOException {
+        int frames = 0;
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            while (in.available() > 0) {
+                int length = in.readInt();
+                in.skipNBytes(4L + length);
+                frames++;
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.producer.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Low-level building blocks of the binary record format shared by the
+ * producer, the consumer and the Telegram bot.
+ *
+ * A record is a magic byte, a schema version byte and a list of fields. Each
+ * field starts with a varint key holding {@code (fieldNumber << 3) | wireType}
+ * so a reader can skip fields it does not know, and absent (null) fields are
+ * simply not written. Integers are zigzag varints, strings are a varint length
+ * followed by UTF-8 bytes.
+ */
+final class WireFormat {
+
+    /** First byte of every binary record; can never start a JSON document. */
+    static final byte MAGIC = (byte) 0xB7;
+    static final int VERSION = 1;
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_BYTES = 2;
+
+    private WireFormat() {
+    }
+
+    static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeLongField(ByteArrayOutputStream out, int field, Long value) {
+        if (value != null) {
+            writeVarint(out, ((long) field << 3) | WIRE_VARINT);
+            writeVarint(out, (value << 1) ^ (value >> 63));
+        }
+    }
+
+    static void writeStringField(ByteArrayOutputStream out, int field, String value) {
+        if (value != null) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, ((long) field << 3) | WIRE_BYTES);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static long readLong(ByteBuffer in) {
+        long raw = readVarint(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    static void skip(ByteBuffer in, int wireType) {
+        switch (wireType) {
+            case WIRE_VARINT -> readVarint(in);
+            case WIRE_BYTES -> {
+                // Read the length first: it moves the position past itself
+                int length = (int) readVarint(in);
+                in.position(in.position() + length);
+            }
+            default -> throw new IllegalArgumentException("Unknown wire type " + wireType);
+        }
+    }
+}
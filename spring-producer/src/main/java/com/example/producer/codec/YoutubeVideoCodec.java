@@ -0,0 +1,100 @@
+package com.example.producer.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * Encodes {@link YoutubeVideo} in the binary record format described in
+ * {@link WireFormat}. Field numbers are part of the schema shared with the
+ * consumer and the Telegram bot: never reuse or renumber them, only add new
+ * ones (and bump {@link WireFormat#VERSION} if old readers must reject the
+ * record).
+ */
+public final class YoutubeVideoCodec {
+
+    static final int VIDEO_ID = 1;
+    static final int TITLE = 2;
+    static final int CHANNEL_ID = 3;
+    static final int CHANNEL_NAME = 4;
+    static final int VIEW_COUNT = 5;
+    static final int LIKE_COUNT = 6;
+    static final int COMMENT_COUNT = 7;
+    static final int COMMENT_TEXT = 8;
+    static final int PUBLISHED_AT = 9;
+    static final int VIDEO_URL = 10;
+    static final int FETCHED_AT = 11;
+    static final int SUBSCRIBER_COUNT = 12;
+    static final int VIDEO_COUNT = 13;
+    static final int LATEST_COMMENT_ID = 14;
+    static final int LATEST_COMMENT_PUBLISHED_AT = 15;
+
+    private YoutubeVideoCodec() {
+    }
+
+    public static byte[] encode(YoutubeVideo video) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        out.write(WireFormat.MAGIC);
+        out.write(WireFormat.VERSION);
+        WireFormat.writeStringField(out, VIDEO_ID, video.getVideoId());
+        WireFormat.writeStringField(out, TITLE, video.getTitle());
+        WireFormat.writeStringField(out, CHANNEL_ID, video.getChannelId());
+        WireFormat.writeStringField(out, CHANNEL_NAME, video.getChannelName());
+        WireFormat.writeLongField(out, VIEW_COUNT, video.getViewCount());
+        WireFormat.writeLongField(out, LIKE_COUNT, video.getLikeCount());
+        WireFormat.writeLongField(out, COMMENT_COUNT, video.getCommentCount());
+        WireFormat.writeStringField(out, COMMENT_TEXT, video.getCommentText());
+        WireFormat.writeLongField(out, PUBLISHED_AT, toMillis(video.getPublishedAt()));
+        WireFormat.writeStringField(out, VIDEO_URL, video.getVideoUrl());
+        WireFormat.writeLongField(out, FETCHED_AT, toMillis(video.getFetchedAt()));
+        WireFormat.writeLongField(out, SUBSCRIBER_COUNT, video.getSubscriberCount());
+        WireFormat.writeLongField(out, VIDEO_COUNT, video.getVideoCount());
+        WireFormat.writeStringField(out, LATEST_COMMENT_ID, video.getLatestCommentId());
+        WireFormat.writeLongField(out, LATEST_COMMENT_PUBLISHED_AT, toMillis(video.getLatestCommentPublishedAt()));
+        return out.toByteArray();
+    }
+
+    public static YoutubeVideo decode(byte[] data) {
+        if (!WireFormat.isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary YoutubeVideo record");
+        }
+        int version = data[1] & 0xFF;
+        if (version > WireFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported YoutubeVideo record version " + version);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(data, 2, data.length - 2);
+        YoutubeVideo video = new YoutubeVideo();
+        while (in.hasRemaining()) {
+            long key = WireFormat.readVarint(in);
+            int field = (int) (key >>> 3);
+            int wireType = (int) (key & 0x7);
+            switch (field) {
+                case VIDEO_ID -> video.setVideoId(WireFormat.readString(in));
+                case TITLE -> video.setTitle(WireFormat.readString(in));
+                case CHANNEL_ID -> video.setChannelId(WireFormat.readString(in));
+                case CHANNEL_NAME -> video.setChannelName(WireFormat.readString(in));
+                case VIEW_COUNT -> video.setViewCount(WireFormat.readLong(in));
+                case LIKE_COUNT -> video.setLikeCount(WireFormat.readLong(in));
+                case COMMENT_COUNT -> video.setCommentCount(WireFormat.readLong(in));
+                case COMMENT_TEXT -> video.setCommentText(WireFormat.readString(in));
+                case PUBLISHED_AT -> video.setPublishedAt(Instant.ofEpochMilli(WireFormat.readLong(in)));
+                case VIDEO_URL -> video.setVideoUrl(WireFormat.readString(in));
+                case FETCHED_AT -> video.setFetchedAt(Instant.ofEpochMilli(WireFormat.readLong(in)));
+                case SUBSCRIBER_COUNT -> video.setSubscriberCount(WireFormat.readLong(in));
+                case VIDEO_COUNT -> video.setVideoCount(WireFormat.readLong(in));
+                case LATEST_COMMENT_ID -> video.setLatestCommentId(WireFormat.readString(in));
+                case LATEST_COMMENT_PUBLISHED_AT ->
+                    video.setLatestCommentPublishedAt(Instant.ofEpochMilli(WireFormat.readLong(in)));
+                default -> WireFormat.skip(in, wireType);
+            }
+        }
+        return video;
+    }
+
+    private static Long toMillis(Instant instant) {
+        return instant != null ? instant.toEpochMilli() : null;
+    }
+}
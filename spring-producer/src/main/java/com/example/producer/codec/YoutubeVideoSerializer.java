@@ -0,0 +1,18 @@
+package com.example.producer.codec;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * Kafka serializer for the compact binary record format. Enable it with
+ * {@code KAFKA_VALUE_SERIALIZER=com.example.producer.codec.YoutubeVideoSerializer}
+ * once the consumers run a build that understands binary records.
+ */
+public class YoutubeVideoSerializer implements Serializer<YoutubeVideo> {
+
+    @Override
+    public byte[] serialize(String topic, YoutubeVideo video) {
+        return video != null ? YoutubeVideoCodec.encode(video) : null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.producer.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${kafka.topic.youtube-video-state}")
+    private String videoStateTopic;
+
+    /**
+     * Latest state per video, keyed by video ID. Compaction keeps only the
+     * newest record per key, and a null value (tombstone) deletes the video.
+     * Declared here so the topic is compacted even when the broker would
+     * otherwise auto-create it on first use.
+     */
+    @Bean
+    public NewTopic videoStateTopic() {
+        return TopicBuilder.name(videoStateTopic)
+                .partitions(3)
+                .replicas(1)
+                .compact()
+                .config(TopicConfig.MIN_COMPACTION_LAG_MS_CONFIG, "0")
+                .config(TopicConfig.SEGMENT_MS_CONFIG, "3600000")
+                .config(TopicConfig.DELETE_RETENTION_MS_CONFIG, "86400000")
+                .build();
+    }
+}
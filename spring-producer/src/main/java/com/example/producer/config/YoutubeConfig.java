@@ -3,6 +3,8 @@ package com.example.producer.config;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,18 +18,52 @@ import com.google.api.services.youtube.YouTube;
 @Configuration
 public class YoutubeConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(YoutubeConfig.class);
+
     @Value("${youtube.api.key}")
     private String apiKey;
 
+    @Value("${youtube.http.connect-timeout:3000}")
+    private int connectTimeout;
+
+    @Value("${youtube.http.read-timeout:7000}")
+    private int readTimeout;
+
+    @Value("${youtube.refresh.cycle-deadline:50000}")
+    private long cycleDeadline;
+
+    @Value("${youtube.comments.max-pages:5}")
+    private int maxCommentPages;
+
     private static final String APPLICATION_NAME = "YouTube Data Analysis";
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
 
     @Bean
     public YouTube youtubeService() throws GeneralSecurityException, IOException {
         final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        return new YouTube.Builder(httpTransport, JSON_FACTORY, null)
+        // Bounded timeouts keep a stalled request from pinning a refresh worker
+        int effectiveReadTimeout = fitReadTimeout();
+        return new YouTube.Builder(httpTransport, JSON_FACTORY, request -> request
+                    .setConnectTimeout(connectTimeout)
+                    .setReadTimeout(effectiveReadTimeout))
                 .setApplicationName(APPLICATION_NAME)
                 .setGoogleClientRequestInitializer(request -> request.getRequestHeaders().set("X-Goog-Api-Key", apiKey))
                 .build();
     }
-} 
\ No newline at end of file
+
+    /**
+     * The read timeout, shortened if need be so that a video's comment pages
+     * still fit in the refresh cycle deadline when every one of them runs
+     * into the timeouts. Cancelling a refresh does not interrupt a blocking
+     * read, so these timeouts are what bounds a stalled request.
+     */
+    private int fitReadTimeout() {
+        long perRequest = cycleDeadline / Math.max(1, maxCommentPages);
+        long fitted = Math.max(1000, Math.min(readTimeout, perRequest - connectTimeout));
+        if (fitted < readTimeout) {
+            logger.warn("YouTube read timeout lowered from {} ms to {} ms so that {} comment pages fit in the {} ms cycle deadline",
+                readTimeout, fitted, maxCommentPages, cycleDeadline);
+        }
+        return (int) fitted;
+    }
+}
@@ -1,13 +1,33 @@
 package com.example.producer.controller;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import com.example.producer.service.KafkaProducerService;
+import com.example.producer.service.OutboxRelay;
+import com.example.producer.service.QuotaBudgetService;
+import com.example.producer.service.QuotaExceededException;
+import com.example.producer.service.VideoCacheService;
+import com.example.producer.service.VideoChangeDetector;
+import com.example.producer.service.VideoDeletionService;
+import com.example.producer.service.VideoHistoryService;
+import com.example.producer.service.VideoPollingSchedule;
+import com.example.producer.service.VideoRefreshEngine;
 import com.example.producer.service.YouTubeService;
 import com.example.producer.model.YoutubeVideo;
 import com.example.producer.repository.YoutubeVideoRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/youtube")
@@ -15,12 +35,36 @@ import java.util.List;
 public class YoutubeController {
 
     private static final Logger logger = LoggerFactory.getLogger(YoutubeController.class);
+    private static final Pattern STEP_PATTERN = Pattern.compile("(\\d+)([mhd])");
     private final YouTubeService youtubeService;
     private final YoutubeVideoRepository videoRepository;
+    private final VideoRefreshEngine refreshEngine;
+    private final QuotaBudgetService quotaBudget;
+    private final VideoPollingSchedule pollingSchedule;
+    private final VideoCacheService cacheService;
+    private final VideoChangeDetector changeDetector;
+    private final KafkaProducerService kafkaProducerService;
+    private final VideoDeletionService deletionService;
+    private final OutboxRelay outboxRelay;
+    private final VideoHistoryService historyService;
 
-    public YoutubeController(YouTubeService youtubeService, YoutubeVideoRepository videoRepository) {
+    public YoutubeController(YouTubeService youtubeService, YoutubeVideoRepository videoRepository,
+                             VideoRefreshEngine refreshEngine, QuotaBudgetService quotaBudget,
+                             VideoPollingSchedule pollingSchedule, VideoCacheService cacheService,
+                             VideoChangeDetector changeDetector, KafkaProducerService kafkaProducerService,
+                             VideoDeletionService deletionService, OutboxRelay outboxRelay,
+                             VideoHistoryService historyService) {
         this.youtubeService = youtubeService;
         this.videoRepository = videoRepository;
+        this.refreshEngine = refreshEngine;
+        this.quotaBudget = quotaBudget;
+        this.pollingSchedule = pollingSchedule;
+        this.cacheService = cacheService;
+        this.changeDetector = changeDetector;
+        this.kafkaProducerService = kafkaProducerService;
+        this.deletionService = deletionService;
+        this.outboxRelay = outboxRelay;
+        this.historyService = historyService;
     }
 
     @GetMapping("/search")
@@ -39,6 +83,9 @@ public class YoutubeController {
         } catch (IllegalArgumentException e) {
             logger.error("Invalid YouTube URL or video ID: {}", query, e);
             return ResponseEntity.badRequest().body("Invalid YouTube URL or video ID: " + e.getMessage());
+        } catch (QuotaExceededException e) {
+            logger.warn("Rejected video request, YouTube API quota exhausted: {}", query);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Error processing video request: {}", query, e);
             return ResponseEntity.internalServerError().body("Error processing video request: " + e.getMessage());
@@ -50,13 +97,75 @@ public class YoutubeController {
         return ResponseEntity.ok(videoRepository.findAll());
     }
 
+    /**
+     * Statistics history of a video, read from pre-aggregated buckets.
+     * {@code from} and {@code to} are ISO-8601 instants (default: the last
+     * 24 hours) and {@code step} is e.g. {@code 5m}, {@code 1h} or {@code 1d}.
+     */
+    @GetMapping("/videos/{videoId}/history")
+    public ResponseEntity<?> getVideoHistory(@PathVariable String videoId,
+                                             @RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to,
+                                             @RequestParam(required = false) String step) {
+        try {
+            Instant end = to != null ? Instant.parse(to) : Instant.now();
+            Instant start = from != null ? Instant.parse(from) : end.minus(Duration.ofDays(1));
+            if (!start.isBefore(end)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "'from' must be before 'to'"));
+            }
+            // Without a step, about 300 points over the range
+            Duration interval = step != null ? parseStep(step)
+                : Duration.between(start, end).dividedBy(300).withNanos(0);
+            if (interval.compareTo(Duration.ofMinutes(1)) < 0) {
+                interval = Duration.ofMinutes(1);
+            }
+            return ResponseEntity.ok(historyService.getHistory(videoId, start, end, interval));
+        } catch (IllegalArgumentException | DateTimeException | ArithmeticException e) {
+            // ArithmeticException: instants too far out to count in milliseconds
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/refresh/stats")
+    public ResponseEntity<VideoRefreshEngine.CycleReport> getRefreshStats() {
+        VideoRefreshEngine.CycleReport report = refreshEngine.getLastReport();
+        if (report == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    @GetMapping("/quota")
+    public ResponseEntity<Map<String, Object>> getQuotaStats() {
+        return ResponseEntity.ok(quotaBudget.getStats());
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(cacheService.getStats());
+    }
+
+    @GetMapping("/publish/stats")
+    public ResponseEntity<Map<String, Object>> getPublishStats() {
+        return ResponseEntity.ok(changeDetector.getStats());
+    }
+
+    @GetMapping("/kafka/stats")
+    public ResponseEntity<Map<String, Object>> getKafkaStats() {
+        return ResponseEntity.ok(kafkaProducerService.getStats());
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(outboxRelay.getStats());
+    }
+
     @DeleteMapping("/videos/{videoId}")
     public ResponseEntity<?> deleteVideo(@PathVariable String videoId) {
         try {
-            if (!videoRepository.existsById(videoId)) {
+            if (deleteAndForget(List.of(videoId)).isEmpty()) {
                 return ResponseEntity.notFound().build();
             }
-            videoRepository.deleteById(videoId);
             logger.info("Successfully deleted video with ID: {}", videoId);
             return ResponseEntity.ok().build();
         } catch (Exception e) {
@@ -64,4 +173,58 @@ public class YoutubeController {
             return ResponseEntity.internalServerError().body("Error deleting video: " + e.getMessage());
         }
     }
+
+    /**
+     * Deletes several videos in one transaction, e.g.
+     * {@code DELETE /videos?ids=a,b,c}. Unknown IDs are reported, not an error.
+     */
+    @DeleteMapping("/videos")
+    public ResponseEntity<?> deleteVideos(@RequestParam("ids") Set<String> videoIds) {
+        try {
+            List<String> deleted = deleteAndForget(videoIds);
+            Set<String> notFound = new LinkedHashSet<>(videoIds);
+            deleted.forEach(notFound::remove);
+            logger.info("Deleted {} of {} requested videos", deleted.size(), videoIds.size());
+            return ResponseEntity.ok(Map.of("deleted", deleted, "notFound", notFound));
+        } catch (Exception e) {
+            logger.error("Error deleting videos: {}", videoIds, e);
+            return ResponseEntity.internalServerError().body("Error deleting videos: " + e.getMessage());
+        }
+    }
+
+    /** @throws IllegalArgumentException for a step that is malformed or too large to count in milliseconds */
+    private static Duration parseStep(String step) {
+        try {
+            Duration duration = toDuration(step);
+            // The history is bucketed in milliseconds
+            duration.toMillis();
+            return duration;
+        } catch (ArithmeticException | NumberFormatException e) {
+            throw new IllegalArgumentException("'step' is too large: " + step);
+        }
+    }
+
+    private static Duration toDuration(String step) {
+        Matcher matcher = STEP_PATTERN.matcher(step);
+        if (!matcher.matches()) {
+            return Duration.parse(step);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "m": return Duration.ofMinutes(amount);
+            case "h": return Duration.ofHours(amount);
+            default: return Duration.ofDays(amount);
+        }
+    }
+
+    private List<String> deleteAndForget(Collection<String> videoIds) {
+        // The tombstones are queued in the outbox by the same transaction
+        List<String> deleted = deletionService.delete(videoIds);
+        for (String videoId : deleted) {
+            pollingSchedule.untrack(videoId);
+            cacheService.evictVideo(videoId);
+            changeDetector.forget(videoId);
+        }
+        return deleted;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.example.producer.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * An outbox event the relay gave up on, kept with the reason so that it can
+ * be inspected and, once fixed, copied back into the outbox by hand. It keeps
+ * the id it had in the outbox.
+ */
+@Entity
+@Table(name = "video_outbox_dead")
+public class DeadOutboxEvent {
+
+    @Id
+    private Long id;
+    @Column(nullable = false)
+    private String topic;
+    @Column(name = "message_key", nullable = false)
+    private String messageKey;
+    @Lob
+    private byte[] payload;
+    private Instant createdAt;
+    private int attempts;
+    @Column(length = 1000)
+    private String lastError;
+    private Instant deadAt;
+
+    // Default constructor
+    public DeadOutboxEvent() {}
+
+    public static DeadOutboxEvent of(OutboxEvent event, String lastError) {
+        DeadOutboxEvent dead = new DeadOutboxEvent();
+        dead.id = event.getId();
+        dead.topic = event.getTopic();
+        dead.messageKey = event.getMessageKey();
+        dead.payload = event.getPayload();
+        dead.createdAt = event.getCreatedAt();
+        dead.attempts = event.getAttempts();
+        dead.lastError = lastError != null && lastError.length() > 1000 ? lastError.substring(0, 1000) : lastError;
+        dead.deadAt = Instant.now();
+        return dead;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+
+    public String getMessageKey() { return messageKey; }
+    public void setMessageKey(String messageKey) { this.messageKey = messageKey; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Instant getDeadAt() { return deadAt; }
+    public void setDeadAt(Instant deadAt) { this.deadAt = deadAt; }
+}
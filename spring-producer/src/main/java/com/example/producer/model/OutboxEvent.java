@@ -0,0 +1,75 @@
+package com.example.producer.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import com.example.producer.codec.YoutubeVideoCodec;
+
+/**
+ * A Kafka record waiting to be published, written in the same transaction as
+ * the database change it describes. The generated id gives the publish order.
+ */
+@Entity
+@Table(name = "video_outbox")
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private String topic;
+    @Column(name = "message_key", nullable = false)
+    private String messageKey;
+    // The video in the compact binary format, or null for a tombstone
+    @Lob
+    private byte[] payload;
+    private Instant createdAt;
+    // Failed publishes that were down to this event rather than to the broker
+    @Column(nullable = false, columnDefinition = "int default 0")
+    private int attempts;
+
+    // Default constructor
+    public OutboxEvent() {}
+
+    /** The state of {@code video}, keyed by its ID. */
+    public static OutboxEvent record(String topic, YoutubeVideo video) {
+        OutboxEvent event = tombstone(topic, video.getVideoId());
+        event.payload = YoutubeVideoCodec.encode(video);
+        return event;
+    }
+
+    /** A tombstone that deletes {@code videoId} from a compacted topic. */
+    public static OutboxEvent tombstone(String topic, String videoId) {
+        OutboxEvent event = new OutboxEvent();
+        event.topic = topic;
+        event.messageKey = videoId;
+        event.createdAt = Instant.now();
+        return event;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+
+    public String getMessageKey() { return messageKey; }
+    public void setMessageKey(String messageKey) { this.messageKey = messageKey; }
+
+    public byte[] getPayload() { return payload; }
+    public void setPayload(byte[] payload) { this.payload = payload; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+}
@@ -0,0 +1,132 @@
+package com.example.producer.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * The statistics of one video over one time bucket: the values at the first
+ * and the last sample in the bucket. Counters only grow, so the first and
+ * last values are enough to chart both totals and growth at any coarser step.
+ */
+@Entity
+@Table(name = "video_stats_rollup",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"video_id", "resolution", "bucket_start"}),
+    indexes = @Index(columnList = "resolution, bucket_start"))
+public class VideoStatsRollup {
+
+    /** Bucket sizes, finest first. */
+    public enum Resolution {
+        MINUTE(Duration.ofMinutes(1)),
+        HOUR(Duration.ofHours(1)),
+        DAY(Duration.ofDays(1));
+
+        private final Duration size;
+
+        Resolution(Duration size) {
+            this.size = size;
+        }
+
+        public Duration getSize() { return size; }
+
+        /** Start of the bucket containing {@code time}. */
+        public Instant bucketOf(Instant time) {
+            long sizeMillis = size.toMillis();
+            return Instant.ofEpochMilli(Math.floorDiv(time.toEpochMilli(), sizeMillis) * sizeMillis);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "video_id", nullable = false)
+    private String videoId;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Resolution resolution;
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+    private int samples;
+    private Long firstViewCount;
+    private Long viewCount;
+    private Long firstLikeCount;
+    private Long likeCount;
+    private Long firstCommentCount;
+    private Long commentCount;
+    private Long subscriberCount;
+    private Instant lastSampleAt;
+
+    // Default constructor
+    public VideoStatsRollup() {}
+
+    public VideoStatsRollup(String videoId, Resolution resolution, Instant bucketStart) {
+        this.videoId = videoId;
+        this.resolution = resolution;
+        this.bucketStart = bucketStart;
+    }
+
+    /** Adds a sample; samples must arrive in time order. */
+    public void add(VideoStatsSample sample) {
+        if (samples == 0) {
+            firstViewCount = sample.getViewCount();
+            firstLikeCount = sample.getLikeCount();
+            firstCommentCount = sample.getCommentCount();
+        }
+        samples++;
+        viewCount = sample.getViewCount();
+        likeCount = sample.getLikeCount();
+        commentCount = sample.getCommentCount();
+        subscriberCount = sample.getSubscriberCount();
+        lastSampleAt = sample.getSampledAt();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getVideoId() { return videoId; }
+    public void setVideoId(String videoId) { this.videoId = videoId; }
+
+    public Resolution getResolution() { return resolution; }
+    public void setResolution(Resolution resolution) { this.resolution = resolution; }
+
+    public Instant getBucketStart() { return bucketStart; }
+    public void setBucketStart(Instant bucketStart) { this.bucketStart = bucketStart; }
+
+    public int getSamples() { return samples; }
+    public void setSamples(int samples) { this.samples = samples; }
+
+    public Long getFirstViewCount() { return firstViewCount; }
+    public void setFirstViewCount(Long firstViewCount) { this.firstViewCount = firstViewCount; }
+
+    public Long getViewCount() { return viewCount; }
+    public void setViewCount(Long viewCount) { this.viewCount = viewCount; }
+
+    public Long getFirstLikeCount() { return firstLikeCount; }
+    public void setFirstLikeCount(Long firstLikeCount) { this.firstLikeCount = firstLikeCount; }
+
+    public Long getLikeCount() { return likeCount; }
+    public void setLikeCount(Long likeCount) { this.likeCount = likeCount; }
+
+    public Long getFirstCommentCount() { return firstCommentCount; }
+    public void setFirstCommentCount(Long firstCommentCount) { this.firstCommentCount = firstCommentCount; }
+
+    public Long getCommentCount() { return commentCount; }
+    public void setCommentCount(Long commentCount) { this.commentCount = commentCount; }
+
+    public Long getSubscriberCount() { return subscriberCount; }
+    public void setSubscriberCount(Long subscriberCount) { this.subscriberCount = subscriberCount; }
+
+    public Instant getLastSampleAt() { return lastSampleAt; }
+    public void setLastSampleAt(Instant lastSampleAt) { this.lastSampleAt = lastSampleAt; }
+}
@@ -0,0 +1,67 @@
+package com.example.producer.model;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * One raw sample of a video's counters. Only the numbers are kept: titles,
+ * URLs and comments are in the video table, and repeating them per sample
+ * would make this the widest table for the least used data.
+ */
+@Entity
+@Table(name = "video_stats_sample", indexes = @Index(columnList = "sampled_at"))
+public class VideoStatsSample {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(name = "video_id", nullable = false)
+    private String videoId;
+    @Column(name = "sampled_at", nullable = false)
+    private Instant sampledAt;
+    private Long viewCount;
+    private Long likeCount;
+    private Long commentCount;
+    private Long subscriberCount;
+
+    // Default constructor
+    public VideoStatsSample() {}
+
+    public VideoStatsSample(YoutubeVideo video, Instant sampledAt) {
+        this.videoId = video.getVideoId();
+        this.sampledAt = sampledAt;
+        this.viewCount = video.getViewCount();
+        this.likeCount = video.getLikeCount();
+        this.commentCount = video.getCommentCount();
+        this.subscriberCount = video.getSubscriberCount();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getVideoId() { return videoId; }
+    public void setVideoId(String videoId) { this.videoId = videoId; }
+
+    public Instant getSampledAt() { return sampledAt; }
+    public void setSampledAt(Instant sampledAt) { this.sampledAt = sampledAt; }
+
+    public Long getViewCount() { return viewCount; }
+    public void setViewCount(Long viewCount) { this.viewCount = viewCount; }
+
+    public Long getLikeCount() { return likeCount; }
+    public void setLikeCount(Long likeCount) { this.likeCount = likeCount; }
+
+    public Long getCommentCount() { return commentCount; }
+    public void setCommentCount(Long commentCount) { this.commentCount = commentCount; }
+
+    public Long getSubscriberCount() { return subscriberCount; }
+    public void setSubscriberCount(Long subscriberCount) { this.subscriberCount = subscriberCount; }
+}
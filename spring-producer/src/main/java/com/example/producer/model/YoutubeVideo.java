@@ -24,10 +24,32 @@ public class YoutubeVideo {
     private Instant fetchedAt;
     private Long subscriberCount;
     private Long videoCount;
+    // High-water mark of the comments already ingested for this video
+    private String latestCommentId;
+    private Instant latestCommentPublishedAt;
 
     // Default constructor
     public YoutubeVideo() {}
 
+    // Copy constructor
+    public YoutubeVideo(YoutubeVideo other) {
+        this.videoId = other.videoId;
+        this.title = other.title;
+        this.channelId = other.channelId;
+        this.channelName = other.channelName;
+        this.viewCount = other.viewCount;
+        this.likeCount = other.likeCount;
+        this.commentCount = other.commentCount;
+        this.commentText = other.commentText;
+        this.publishedAt = other.publishedAt;
+        this.videoUrl = other.videoUrl;
+        this.fetchedAt = other.fetchedAt;
+        this.subscriberCount = other.subscriberCount;
+        this.videoCount = other.videoCount;
+        this.latestCommentId = other.latestCommentId;
+        this.latestCommentPublishedAt = other.latestCommentPublishedAt;
+    }
+
     // Getters and Setters
     public String getVideoId() { return videoId; }
     public void setVideoId(String videoId) { this.videoId = videoId; }
@@ -68,6 +90,12 @@ public class YoutubeVideo {
     public Long getVideoCount() { return videoCount; }
     public void setVideoCount(Long videoCount) { this.videoCount = videoCount; }
 
+    public String getLatestCommentId() { return latestCommentId; }
+    public void setLatestCommentId(String latestCommentId) { this.latestCommentId = latestCommentId; }
+
+    public Instant getLatestCommentPublishedAt() { return latestCommentPublishedAt; }
+    public void setLatestCommentPublishedAt(Instant latestCommentPublishedAt) { this.latestCommentPublishedAt = latestCommentPublishedAt; }
+
     @Override
     public String toString() {
         return "YoutubeVideo{" +
@@ -84,6 +112,8 @@ public class YoutubeVideo {
                 ", fetchedAt=" + fetchedAt +
                 ", subscriberCount=" + subscriberCount +
                 ", videoCount=" + videoCount +
+                ", latestCommentId='" + latestCommentId + '\'' +
+                ", latestCommentPublishedAt=" + latestCommentPublishedAt +
                 '}';
     }
 } 
\ No newline at end of file
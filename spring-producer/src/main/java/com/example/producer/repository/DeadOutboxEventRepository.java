@@ -0,0 +1,10 @@
+package com.example.producer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.producer.model.DeadOutboxEvent;
+
+@Repository
+public interface DeadOutboxEventRepository extends JpaRepository<DeadOutboxEvent, Long> {
+}
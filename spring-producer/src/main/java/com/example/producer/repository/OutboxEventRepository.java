@@ -0,0 +1,16 @@
+package com.example.producer.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.example.producer.model.OutboxEvent;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /** The oldest pending events, in publish order. */
+    List<OutboxEvent> findByOrderByIdAsc(Pageable pageable);
+}
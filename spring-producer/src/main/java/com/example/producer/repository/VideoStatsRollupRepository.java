@@ -0,0 +1,29 @@
+package com.example.producer.repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.producer.model.VideoStatsRollup;
+import com.example.producer.model.VideoStatsRollup.Resolution;
+
+@Repository
+public interface VideoStatsRollupRepository extends JpaRepository<VideoStatsRollup, Long> {
+
+    List<VideoStatsRollup> findByVideoIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+        String videoId, Resolution resolution, Instant from, Instant to);
+
+    /** The existing buckets among those about to be updated. */
+    List<VideoStatsRollup> findByResolutionAndVideoIdInAndBucketStartIn(
+        Resolution resolution, Collection<String> videoIds, Collection<Instant> bucketStarts);
+
+    @Modifying
+    @Query("delete from VideoStatsRollup r where r.resolution = :resolution and r.bucketStart < :cutoff")
+    int deleteExpired(@Param("resolution") Resolution resolution, @Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,19 @@
+package com.example.producer.repository;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.producer.model.VideoStatsSample;
+
+@Repository
+public interface VideoStatsSampleRepository extends JpaRepository<VideoStatsSample, Long> {
+
+    @Modifying
+    @Query("delete from VideoStatsSample s where s.sampledAt < :cutoff")
+    int deleteExpired(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,162 @@
+package com.example.producer.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.producer.model.YoutubeVideo;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.services.youtube.YouTube;
+import com.google.api.services.youtube.model.CommentSnippet;
+import com.google.api.services.youtube.model.CommentThread;
+import com.google.api.services.youtube.model.CommentThreadListResponse;
+
+/**
+ * Reads only the comments posted since the last poll.
+ *
+ * Each video carries a high-water mark (ID and publish time of the newest
+ * comment already ingested). Comment threads are paged newest first with
+ * {@code pageToken} until the high-water mark is reached, so every new comment
+ * is seen exactly once. When the comment count has not moved since the last
+ * poll no request is made at all.
+ */
+@Service
+public class CommentIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentIngestionService.class);
+    // commentThreads.list returns at most 100 threads per page
+    private static final long PAGE_SIZE = 100L;
+
+    private final YouTube youtubeService;
+    private final QuotaBudgetService quotaBudget;
+
+    @Value("${youtube.api.key}")
+    private String apiKey;
+
+    @Value("${youtube.comments.max-pages:5}")
+    private int maxPages;
+
+    public CommentIngestionService(YouTube youtubeService, QuotaBudgetService quotaBudget) {
+        this.youtubeService = youtubeService;
+        this.quotaBudget = quotaBudget;
+    }
+
+    public static class NewComment {
+        private final String commentId;
+        private final String text;
+        private final Instant publishedAt;
+
+        public NewComment(String commentId, String text, Instant publishedAt) {
+            this.commentId = commentId;
+            this.text = text;
+            this.publishedAt = publishedAt;
+        }
+
+        public String getCommentId() { return commentId; }
+        public String getText() { return text; }
+        public Instant getPublishedAt() { return publishedAt; }
+    }
+
+    public static class IngestResult {
+        private final List<NewComment> newComments;
+        private final boolean commentsDisabled;
+
+        public IngestResult(List<NewComment> newComments, boolean commentsDisabled) {
+            this.newComments = newComments;
+            this.commentsDisabled = commentsDisabled;
+        }
+
+        /** New comments, oldest first. */
+        public List<NewComment> getNewComments() { return newComments; }
+        public boolean isCommentsDisabled() { return commentsDisabled; }
+
+        public NewComment getNewest() {
+            return newComments.isEmpty() ? null : newComments.get(newComments.size() - 1);
+        }
+    }
+
+    /**
+     * Returns the comments on {@code videoId} newer than the high-water mark
+     * stored on {@code previous}, or posted since it was fetched if it had no
+     * comments then. The first time a video is seen only its newest comment is
+     * returned, rather than its whole history.
+     */
+    public IngestResult ingest(String videoId, YoutubeVideo previous, long commentCount,
+                               QuotaBudgetService.Priority priority) throws IOException {
+        if (previous != null && previous.getFetchedAt() != null
+                && Objects.equals(previous.getCommentCount(), commentCount)) {
+            return new IngestResult(Collections.emptyList(), false);
+        }
+
+        String highWaterId = null;
+        Instant highWaterAt = null;
+        if (previous != null) {
+            highWaterId = previous.getLatestCommentId();
+            // A stored video without comments: everything since the last fetch is new
+            highWaterAt = previous.getLatestCommentPublishedAt() != null
+                ? previous.getLatestCommentPublishedAt() : previous.getFetchedAt();
+        }
+        // Without any mark (never stored, or a legacy row) there is nothing to page back to
+        boolean firstSighting = highWaterId == null && highWaterAt == null;
+
+        List<NewComment> newestFirst = new ArrayList<>();
+        String pageToken = null;
+        int pages = 0;
+        try {
+            do {
+                YouTube.CommentThreads.List request = youtubeService.commentThreads()
+                        .list(Collections.singletonList("snippet"))
+                        .setKey(apiKey)
+                        .setVideoId(videoId)
+                        .setOrder("time")
+                        .setMaxResults(firstSighting ? 1L : PAGE_SIZE)
+                        .setPageToken(pageToken);
+
+                quotaBudget.acquire(QuotaBudgetService.Endpoint.COMMENT_THREADS_LIST, priority);
+                CommentThreadListResponse response = request.execute();
+                pages++;
+
+                for (CommentThread thread : response.getItems()) {
+                    CommentSnippet snippet = thread.getSnippet().getTopLevelComment().getSnippet();
+                    Instant publishedAt = Instant.ofEpochMilli(snippet.getPublishedAt().getValue());
+                    if (thread.getId().equals(highWaterId)
+                            || (highWaterAt != null && publishedAt.isBefore(highWaterAt))) {
+                        // Reached comments that were already ingested
+                        return result(videoId, newestFirst, pages);
+                    }
+                    newestFirst.add(new NewComment(thread.getId(), snippet.getTextDisplay(), publishedAt));
+                }
+                pageToken = response.getNextPageToken();
+            } while (!firstSighting && pageToken != null && pages < maxPages);
+
+            if (pageToken != null && !firstSighting) {
+                logger.warn("Stopped reading new comments for video {} after {} pages, older new comments are skipped",
+                    videoId, pages);
+            }
+            return result(videoId, newestFirst, pages);
+
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == 403) {
+                logger.info("Comments are disabled for video: {}", videoId);
+                return new IngestResult(Collections.emptyList(), true);
+            }
+            throw e;
+        }
+    }
+
+    private IngestResult result(String videoId, List<NewComment> newestFirst, int pages) {
+        if (!newestFirst.isEmpty()) {
+            logger.debug("Ingested {} new comments for video {} in {} pages", newestFirst.size(), videoId, pages);
+        }
+        Collections.reverse(newestFirst);
+        return new IngestResult(newestFirst, false);
+    }
+}
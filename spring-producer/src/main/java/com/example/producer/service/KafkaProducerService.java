@@ -1,8 +1,16 @@
 package com.example.producer.service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,8 +19,6 @@ import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
 import com.example.producer.model.YoutubeVideo;
-import com.example.producer.model.YoutubeVideoAnalytics;
-import com.example.producer.repository.YoutubeVideoAnalyticsRepository;
 
 @Service
 public class KafkaProducerService {
@@ -20,126 +26,143 @@ public class KafkaProducerService {
     private static final Logger logger = LoggerFactory.getLogger(KafkaProducerService.class);
 
     private final KafkaTemplate<String, YoutubeVideo> kafkaTemplate;
-    private final YoutubeVideoAnalyticsRepository analyticsRepository;
-    
-    @Value("${kafka.topic.youtube-data}")
-    private String analyticsTopic;
+
+    // Running totals across all sends, reported instead of logging every record
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+
+    @Value("${kafka.topic.youtube-video-state}")
+    private String videoStateTopic;
 
     @Value("${kafka.topic.youtube-comments}")
     private String commentsTopic;
 
-    @Value("${kafka.topic.youtube-delete}")
-    private String deleteTopic;
-
-    public KafkaProducerService(KafkaTemplate<String, YoutubeVideo> kafkaTemplate, 
-                               YoutubeVideoAnalyticsRepository analyticsRepository) {
+    public KafkaProducerService(KafkaTemplate<String, YoutubeVideo> kafkaTemplate) {
         this.kafkaTemplate = kafkaTemplate;
-        this.analyticsRepository = analyticsRepository;
     }
 
-    public void sendVideoData(YoutubeVideo video) {
-        if (video == null) {
-            logger.warn("Received null video object, skipping processing");
-            return;
+    /**
+     * Publishes records relayed from the outbox in their given order and
+     * flushes once. Returns how many of them, counted from the first, were
+     * acknowledged, and why the first one that was not failed: anything after
+     * it has to be sent again so that no later change to a key overtakes an
+     * earlier one.
+     */
+    public PublishResult publishInOrder(List<ProducerRecord<String, YoutubeVideo>> records, long timeoutMillis) {
+        if (records.isEmpty()) {
+            return new PublishResult(0, null);
         }
 
-        logger.info("Processing video: {} ({})", video.getTitle(), video.getVideoId());
-        logger.debug("Topics configured - Analytics: {}, Comments: {}", analyticsTopic, commentsTopic);
-
-        String commentText = video.getCommentText();
-        logger.debug("Comment text for video {}: '{}'", video.getVideoId(), commentText);
-        
-        if (commentText != null && !commentText.trim().isEmpty()) {
-            commentText = commentText.trim();
-            int commentLength = commentText.length();
-            
-            logger.info("Video {} has comment with length {} - Comment text: '{}'", 
-                video.getVideoId(), commentLength, commentText);
-
-            if (commentLength % 2 == 0) {
-                // Even length - send to consumer for analytics processing
-                logger.info("Video {} has even comment length ({}), sending to analytics topic: {}", 
-                video.getVideoId(), commentLength, analyticsTopic);
-                sendToAnalytics(video);
-            } else {
-                // Odd length - send to Telegram
-                logger.info("Video {} has odd comment length ({}), sending to Telegram topic: {}", 
-                video.getVideoId(), commentLength, commentsTopic);
-                try {
-                    sendToTelegram(video);
-                } catch (Exception e) {
-                    logger.error("Failed to send to Telegram, will retry later: {}", e.getMessage());
-                }
+        BatchOutcome outcome = new BatchOutcome();
+        List<CompletableFuture<SendResult<String, YoutubeVideo>>> futures = new ArrayList<>(records.size());
+        for (ProducerRecord<String, YoutubeVideo> record : records) {
+            futures.add(send(record.topic(), record.key(), record.value(), outcome));
+        }
+        kafkaTemplate.flush();
+
+        int acknowledged = 0;
+        Throwable failure = null;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (CompletableFuture<SendResult<String, YoutubeVideo>> future : futures) {
+            try {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+                break;
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+                break;
+            } catch (TimeoutException e) {
+                failure = e;
+                break;
             }
-        } else {
-            logger.info("Video {} has no comments, skipping Kafka message routing", video.getVideoId());
         }
+
+        long batch = batchCount.incrementAndGet();
+        logger.info("Kafka batch #{}: {} records sent, {} failed, {} acknowledged in order",
+            batch, outcome.sent.get(), outcome.failed.get(), acknowledged);
+        return new PublishResult(acknowledged, failure);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "sent", sentCount.get(),
+            "failed", failedCount.get(),
+            "batches", batchCount.get());
     }
 
-    public void sendDeleteNotification(String videoId) {
-        if (videoId == null || videoId.trim().isEmpty()) {
-            logger.warn("Received null or empty videoId for deletion, skipping");
-            return;
+    /**
+     * Picks the topic for a video from the length of its comment: even lengths
+     * go to the analytics consumer through the video state topic, odd lengths
+     * to the Telegram bot. Videos without a comment are not routed.
+     */
+    public String routeFor(YoutubeVideo video) {
+        String commentText = video.getCommentText();
+        if (commentText == null || commentText.trim().isEmpty()) {
+            logger.debug("Video {} has no comments, skipping Kafka message routing", video.getVideoId());
+            return null;
         }
 
-        logger.info("Sending delete notification for video: {}", videoId);
-        
-        // Create a video object with just the ID for deletion
-        YoutubeVideo deleteVideo = new YoutubeVideo();
-        deleteVideo.setVideoId(videoId);
-        
-        CompletableFuture<SendResult<String, YoutubeVideo>> future = 
-            kafkaTemplate.send(deleteTopic, videoId, deleteVideo);
-        
-        future.whenComplete((result, ex) -> {
-            if (ex == null) {
-                logger.info("Sent delete notification for video ID: {} with offset: {}", 
-                    videoId, 
-                    result.getRecordMetadata().offset());
-            } else {
-                logger.error("Unable to send delete notification for video ID: {} due to : {}", 
-                    videoId, 
-                    ex.getMessage());
-            }
-        });
+        int commentLength = commentText.trim().length();
+        if (commentLength % 2 == 0) {
+            // Even length - send to consumer for analytics processing
+            logger.debug("Video {} has even comment length ({}), routing to video state topic: {}",
+                video.getVideoId(), commentLength, videoStateTopic);
+            return videoStateTopic;
+        }
+        // Odd length - send to Telegram
+        logger.debug("Video {} has odd comment length ({}), routing to Telegram topic: {}",
+            video.getVideoId(), commentLength, commentsTopic);
+        return commentsTopic;
     }
 
-    private void sendToAnalytics(YoutubeVideo video) {
-        CompletableFuture<SendResult<String, YoutubeVideo>> future = 
-            kafkaTemplate.send(analyticsTopic, video.getVideoId(), video);
-        
+    private CompletableFuture<SendResult<String, YoutubeVideo>> send(String topic, String key, YoutubeVideo value,
+                                                                    BatchOutcome outcome) {
+        CompletableFuture<SendResult<String, YoutubeVideo>> future;
+        try {
+            future = kafkaTemplate.send(topic, key, value);
+        } catch (Exception e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+
         future.whenComplete((result, ex) -> {
             if (ex == null) {
-                logger.info("Sent video data for analytics, ID: {} with offset: {}", 
-                    video.getVideoId(), 
-                    result.getRecordMetadata().offset());
+                sentCount.incrementAndGet();
+                if (outcome != null) {
+                    outcome.sent.incrementAndGet();
+                }
             } else {
-                logger.error("Unable to send video data for analytics, ID: {} due to : {}", 
-                    video.getVideoId(), 
-                    ex.getMessage());
+                failedCount.incrementAndGet();
+                if (outcome != null) {
+                    outcome.failed.incrementAndGet();
+                }
+                logger.error("Unable to send record for video ID: {} to topic {} due to : {}",
+                    key, topic, ex.getMessage());
             }
         });
+        return future;
     }
 
-    private void sendToTelegram(YoutubeVideo video) {
-        try {
-            // Send to Kafka for Telegram bot
-            CompletableFuture<SendResult<String, YoutubeVideo>> future = 
-                kafkaTemplate.send(commentsTopic, video.getVideoId(), video);
-            
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    logger.info("Sent video data to Telegram topic, ID: {} with offset: {}", 
-                        video.getVideoId(), 
-                        result.getRecordMetadata().offset());
-                } else {
-                    logger.error("Unable to send video data to Telegram topic, ID: {} due to : {}", 
-                        video.getVideoId(), 
-                        ex.getMessage());
-                }
-            });
-        } catch (Exception e) {
-            logger.error("Failed to send video to Telegram topic, ID: {}", video.getVideoId(), e);
+    /** How far an ordered publish got, and what stopped it. */
+    public static class PublishResult {
+        private final int acknowledged;
+        private final Throwable failure;
+
+        public PublishResult(int acknowledged, Throwable failure) {
+            this.acknowledged = acknowledged;
+            this.failure = failure;
         }
+
+        public int getAcknowledged() { return acknowledged; }
+        /** Why the first unacknowledged record failed, or null if all were acknowledged. */
+        public Throwable getFailure() { return failure; }
+    }
+
+    private static class BatchOutcome {
+        private final AtomicInteger sent = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,172 @@
+package com.example.producer.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RetriableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.producer.codec.YoutubeVideoCodec;
+import com.example.producer.model.DeadOutboxEvent;
+import com.example.producer.model.OutboxEvent;
+import com.example.producer.model.YoutubeVideo;
+import com.example.producer.repository.DeadOutboxEventRepository;
+import com.example.producer.repository.OutboxEventRepository;
+import com.example.producer.service.KafkaProducerService.PublishResult;
+
+/**
+ * Publishes the outbox to Kafka in id order, one batch at a time, and deletes
+ * each event once Kafka has acknowledged it. An event is never dropped before
+ * it is published, so a crash or a broker outage only delays it; at worst a
+ * batch is published twice, which the compacted topic and the consumers'
+ * per-key state absorb.
+ *
+ * The one exception is an event that fails on its own account, say one that
+ * cannot be decoded or that Kafka rejects as too large: it would otherwise
+ * block the head of the outbox for good. Such failures are counted on the
+ * event, and after {@code outbox.relay.max-attempts} of them it is moved to
+ * the {@code video_outbox_dead} table. Timeouts and retriable broker errors
+ * are not counted, since they say nothing about the event itself.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxEventRepository outboxRepository;
+    private final DeadOutboxEventRepository deadRepository;
+    private final KafkaProducerService kafkaProducerService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong relayedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong deadCount = new AtomicLong();
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout:30000}")
+    private long sendTimeout;
+
+    @Value("${outbox.relay.max-attempts:5}")
+    private int maxAttempts;
+
+    public OutboxRelay(OutboxEventRepository outboxRepository, DeadOutboxEventRepository deadRepository,
+                       KafkaProducerService kafkaProducerService, TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.deadRepository = deadRepository;
+        this.kafkaProducerService = kafkaProducerService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Drains the outbox until it is empty or a publish fails. After a failure
+     * the unacknowledged events stay at the head of the outbox and are retried
+     * on the next run, ahead of anything queued after them, unless the first
+     * of them has just been dead-lettered.
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:500}")
+    public void drain() {
+        while (true) {
+            List<OutboxEvent> events = outboxRepository.findByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return;
+            }
+
+            // Publish up to the first event that cannot be decoded, which then fails in its place
+            List<ProducerRecord<String, YoutubeVideo>> records = new ArrayList<>(events.size());
+            RuntimeException decodeFailure = null;
+            for (OutboxEvent event : events) {
+                try {
+                    records.add(toRecord(event));
+                } catch (RuntimeException e) {
+                    decodeFailure = e;
+                    break;
+                }
+            }
+            PublishResult result = kafkaProducerService.publishInOrder(records, sendTimeout);
+            int acknowledged = result.getAcknowledged();
+            if (acknowledged > 0) {
+                List<Long> published = new ArrayList<>(acknowledged);
+                for (OutboxEvent event : events.subList(0, acknowledged)) {
+                    published.add(event.getId());
+                }
+                outboxRepository.deleteAllByIdInBatch(published);
+                relayedCount.addAndGet(acknowledged);
+            }
+            batchCount.incrementAndGet();
+
+            if (acknowledged < events.size()) {
+                Throwable failure = acknowledged < records.size() ? result.getFailure() : decodeFailure;
+                if (countsAgainstEvent(failure) && recordFailure(events.get(acknowledged), failure)) {
+                    continue;
+                }
+                logger.warn("Outbox relay stopped after {} of {} events, retrying on the next run",
+                    acknowledged, events.size());
+                return;
+            }
+            if (events.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "pending", outboxRepository.count(),
+            "relayed", relayedCount.get(),
+            "batches", batchCount.get(),
+            "deadLettered", deadCount.get());
+    }
+
+    /**
+     * Counts a failed publish against {@code event} and moves it to the dead
+     * table once it has used up its attempts. Returns whether it was moved,
+     * in which case the events behind it can go ahead.
+     */
+    private boolean recordFailure(OutboxEvent event, Throwable failure) {
+        event.setAttempts(event.getAttempts() + 1);
+        if (event.getAttempts() < maxAttempts) {
+            outboxRepository.save(event);
+            return false;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            deadRepository.save(DeadOutboxEvent.of(event, String.valueOf(failure)));
+            outboxRepository.deleteById(event.getId());
+        });
+        deadCount.incrementAndGet();
+        logger.error("Moved outbox event {} for key {} to the dead table after {} failed attempts: {}",
+            event.getId(), event.getMessageKey(), event.getAttempts(), failure.toString());
+        return true;
+    }
+
+    /** Whether a failure is down to the event itself rather than to Kafka being unavailable. */
+    private static boolean countsAgainstEvent(Throwable failure) {
+        if (failure == null || failure instanceof InterruptedException
+                || failure instanceof TimeoutException) {
+            return false;
+        }
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ProducerRecord<String, YoutubeVideo> toRecord(OutboxEvent event) {
+        YoutubeVideo value = event.getPayload() != null ? YoutubeVideoCodec.decode(event.getPayload()) : null;
+        return new ProducerRecord<>(event.getTopic(), event.getMessageKey(), value);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.producer.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps YouTube Data API usage inside the daily quota.
+ *
+ * Units are handed out from a token bucket that refills continuously at
+ * {@code daily-limit / 24h}, so background refreshes are spread over the day
+ * instead of bursting at every interval. Background calls may not dip into the
+ * last {@code interactive-reserve} tokens, which keeps interactive searches
+ * ahead of the refresh scheduler. A hard cap on units used per quota day
+ * (YouTube resets quotas at midnight Pacific time) sits on top of the bucket.
+ */
+@Service
+public class QuotaBudgetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuotaBudgetService.class);
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles");
+
+    public enum Endpoint {
+        VIDEOS_LIST(1),
+        CHANNELS_LIST(1),
+        COMMENT_THREADS_LIST(1);
+
+        private final int cost;
+
+        Endpoint(int cost) {
+            this.cost = cost;
+        }
+
+        public int getCost() {
+            return cost;
+        }
+    }
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final long dailyLimit;
+    private final double burstCapacity;
+    private final double interactiveReserve;
+    private final double refillPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private LocalDate quotaDay;
+    private long usedToday;
+    private final Map<Priority, Long> rejected = new EnumMap<>(Priority.class);
+
+    public QuotaBudgetService(@Value("${youtube.quota.daily-limit:10000}") long dailyLimit,
+                              @Value("${youtube.quota.burst-capacity:500}") long burstCapacity,
+                              @Value("${youtube.quota.interactive-reserve:100}") long interactiveReserve) {
+        this.dailyLimit = dailyLimit;
+        this.burstCapacity = burstCapacity;
+        this.interactiveReserve = Math.min(interactiveReserve, burstCapacity);
+        this.refillPerNano = (double) dailyLimit / TimeUnit.DAYS.toNanos(1);
+        this.tokens = burstCapacity;
+        this.lastRefillNanos = System.nanoTime();
+        this.quotaDay = LocalDate.now(QUOTA_ZONE);
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, 0L);
+        }
+    }
+
+    /**
+     * Takes the units for one call to {@code endpoint}, or returns {@code false}
+     * if the lane has no budget left right now.
+     */
+    public synchronized boolean tryAcquire(Endpoint endpoint, Priority priority) {
+        refill();
+        int cost = endpoint.getCost();
+        double floor = priority == Priority.BACKGROUND ? interactiveReserve : 0;
+        if (usedToday + cost > dailyLimit || tokens - cost < floor) {
+            rejected.merge(priority, 1L, Long::sum);
+            return false;
+        }
+        tokens -= cost;
+        usedToday += cost;
+        return true;
+    }
+
+    /**
+     * Same as {@link #tryAcquire(Endpoint, Priority)} but throws when there is no
+     * budget, for call sites that cannot proceed without the request.
+     */
+    public void acquire(Endpoint endpoint, Priority priority) {
+        if (!tryAcquire(endpoint, priority)) {
+            logger.warn("YouTube API quota exhausted for {} {} call", priority, endpoint);
+            throw new QuotaExceededException("YouTube API quota exhausted for " + endpoint);
+        }
+    }
+
+    /**
+     * Units background work may spend right now without touching the
+     * interactive reserve or the daily cap.
+     */
+    public synchronized long availableBackgroundUnits() {
+        refill();
+        long fromBucket = (long) Math.max(tokens - interactiveReserve, 0);
+        return Math.min(fromBucket, dailyLimit - usedToday);
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        refill();
+        return Map.of(
+            "dailyLimit", dailyLimit,
+            "usedToday", usedToday,
+            "availableTokens", (long) tokens,
+            "burstCapacity", (long) burstCapacity,
+            "interactiveReserve", (long) interactiveReserve,
+            "refillIntervalMillis", Duration.ofDays(1).toMillis() / Math.max(dailyLimit, 1),
+            "rejectedInteractive", rejected.get(Priority.INTERACTIVE),
+            "rejectedBackground", rejected.get(Priority.BACKGROUND));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstCapacity, tokens + (now - lastRefillNanos) * refillPerNano);
+        lastRefillNanos = now;
+
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        if (!today.equals(quotaDay)) {
+            logger.info("New YouTube quota day {}, {} units were used on {}", today, usedToday, quotaDay);
+            quotaDay = today;
+            usedToday = 0;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.producer.service;
+
+/**
+ * Thrown when a YouTube API call is refused because the quota budget for its
+ * priority lane is used up.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -1,17 +1,41 @@
 package com.example.producer.service;
 
+import java.math.BigInteger;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import com.example.producer.model.YoutubeVideo;
 import com.google.api.services.youtube.model.Channel;
-import com.google.api.services.youtube.model.Video;
 
+/**
+ * ETag cache for YouTube API responses. Only the ETag and the few statistics
+ * we use are kept, never the full API model, and both maps are bounded LRU
+ * caches whose entries also expire after {@code youtube.cache.ttl}.
+ */
 @Service
 public class VideoCacheService {
-    private final Map<String, CacheEntry<YoutubeVideo>> videoCache = new ConcurrentHashMap<>();
-    private final Map<String, CacheEntry<Channel>> channelCache = new ConcurrentHashMap<>();
+    private final BoundedCache<VideoStats> videoCache;
+    private final BoundedCache<ChannelStats> channelCache;
+    private final Duration ttl;
+
+    private final AtomicLong lookups = new AtomicLong();
+    // Only a 304 saves a response, so a cached ETag alone is not a hit
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public VideoCacheService(@Value("${youtube.cache.video.max-entries:10000}") int maxVideos,
+                             @Value("${youtube.cache.channel.max-entries:2000}") int maxChannels,
+                             @Value("${youtube.cache.ttl:21600000}") long ttlMillis) {
+        this.videoCache = new BoundedCache<>(maxVideos);
+        this.channelCache = new BoundedCache<>(maxChannels);
+        this.ttl = Duration.ofMillis(ttlMillis);
+    }
 
     public static class CacheEntry<T> {
         private final T data;
@@ -19,9 +43,13 @@ public class VideoCacheService {
         private final Instant timestamp;
 
         public CacheEntry(T data, String etag) {
+            this(data, etag, Instant.now());
+        }
+
+        public CacheEntry(T data, String etag, Instant timestamp) {
             this.data = data;
             this.etag = etag;
-            this.timestamp = Instant.now();
+            this.timestamp = timestamp;
         }
 
         public T getData() {
@@ -37,24 +65,218 @@ public class VideoCacheService {
         }
     }
 
+    public static class VideoStats {
+        private final String channelId;
+        private final long viewCount;
+        private final long likeCount;
+        private final long commentCount;
+
+        public VideoStats(String channelId, long viewCount, long likeCount, long commentCount) {
+            this.channelId = channelId;
+            this.viewCount = viewCount;
+            this.likeCount = likeCount;
+            this.commentCount = commentCount;
+        }
+
+        public String getChannelId() { return channelId; }
+        public long getViewCount() { return viewCount; }
+        public long getLikeCount() { return likeCount; }
+        public long getCommentCount() { return commentCount; }
+    }
+
+    public static class ChannelStats {
+        private final long subscriberCount;
+        private final long videoCount;
+
+        public ChannelStats(long subscriberCount, long videoCount) {
+            this.subscriberCount = subscriberCount;
+            this.videoCount = videoCount;
+        }
+
+        public static ChannelStats from(Channel channel) {
+            BigInteger subscribers = channel.getStatistics().getSubscriberCount();
+            BigInteger videos = channel.getStatistics().getVideoCount();
+            return new ChannelStats(subscribers != null ? subscribers.longValue() : 0L,
+                videos != null ? videos.longValue() : 0L);
+        }
+
+        public long getSubscriberCount() { return subscriberCount; }
+        public long getVideoCount() { return videoCount; }
+    }
+
+    /**
+     * Access-ordered map that drops the least recently used entry once it
+     * grows past its limit.
+     */
+    private class BoundedCache<T> extends LinkedHashMap<String, CacheEntry<T>> {
+        private final int maxEntries;
+
+        private BoundedCache(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<T>> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Caches a video with the ETag of the single-video {@code videos.list}
+     * response it came from, the ETag sent back as {@code If-None-Match}.
+     */
     public void cacheVideo(String videoId, YoutubeVideo video, String etag) {
-        videoCache.put(videoId, new CacheEntry<>(video, etag));
+        put(videoCache, videoId, new CacheEntry<>(statsOf(video), etag));
+    }
+
+    /**
+     * Updates the statistics of a video fetched in a batch. A batch only has
+     * per-item ETags, which are not valid for a single-video request, so the
+     * entry keeps the ETag (and age) of the last single-video response, and a
+     * video that has none is not cached.
+     */
+    public void updateVideo(String videoId, YoutubeVideo video) {
+        replaceData(videoCache, videoId, statsOf(video));
+    }
+
+    public CacheEntry<VideoStats> getCachedVideo(String videoId) {
+        return get(videoCache, videoId);
+    }
+
+    public void evictVideo(String videoId) {
+        synchronized (videoCache) {
+            videoCache.remove(videoId);
+        }
+    }
+
+    public void cacheChannelData(String channelId, ChannelStats stats, String etag) {
+        put(channelCache, channelId, new CacheEntry<>(stats, etag));
     }
 
-    public CacheEntry<YoutubeVideo> getCachedVideo(String videoId) {
-        return videoCache.get(videoId);
+    /** Like {@link #updateVideo}, for a channel fetched in a batch. */
+    public void updateChannelData(String channelId, ChannelStats stats) {
+        replaceData(channelCache, channelId, stats);
     }
 
-    public void cacheChannelData(String channelId, Channel channel, String etag) {
-        channelCache.put(channelId, new CacheEntry<>(channel, etag));
+    public CacheEntry<ChannelStats> getCachedChannel(String channelId) {
+        return get(channelCache, channelId);
     }
 
-    public CacheEntry<Channel> getCachedChannel(String channelId) {
-        return channelCache.get(channelId);
+    /**
+     * Records a 304 Not Modified answer to a conditional request, i.e. a
+     * response that was served from this cache instead of a full payload.
+     */
+    public void recordNotModified() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Copies of the current entries, for writing a snapshot.
+     */
+    public Map<String, CacheEntry<VideoStats>> getVideoEntries() {
+        synchronized (videoCache) {
+            return new LinkedHashMap<>(videoCache);
+        }
+    }
+
+    public Map<String, CacheEntry<ChannelStats>> getChannelEntries() {
+        synchronized (channelCache) {
+            return new LinkedHashMap<>(channelCache);
+        }
+    }
+
+    /**
+     * Puts back an entry read from a snapshot, keeping its original timestamp.
+     * Entries that have already expired are ignored. A restored video entry
+     * only carries its ETag; its statistics are {@code null} until the video
+     * is fetched again.
+     */
+    public void restoreVideo(String videoId, CacheEntry<VideoStats> entry) {
+        if (!isExpired(entry)) {
+            put(videoCache, videoId, entry);
+        }
+    }
+
+    public void restoreChannel(String channelId, CacheEntry<ChannelStats> entry) {
+        if (!isExpired(entry)) {
+            put(channelCache, channelId, entry);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int videoEntries;
+        int channelEntries;
+        synchronized (videoCache) {
+            videoEntries = videoCache.size();
+        }
+        synchronized (channelCache) {
+            channelEntries = channelCache.size();
+        }
+        long lookupCount = lookups.get();
+        long hitCount = hits.get();
+        return Map.of(
+            "videoEntries", videoEntries,
+            "channelEntries", channelEntries,
+            "lookups", lookupCount,
+            "hits", hitCount,
+            "misses", Math.max(lookupCount - hitCount, 0),
+            "hitRate", lookupCount > 0 ? (double) hitCount / lookupCount : 0.0,
+            "evictions", evictions.get(),
+            "expirations", expirations.get());
     }
 
     public void clearCache() {
-        videoCache.clear();
-        channelCache.clear();
+        synchronized (videoCache) {
+            videoCache.clear();
+        }
+        synchronized (channelCache) {
+            channelCache.clear();
+        }
+    }
+
+    private <T> void put(BoundedCache<T> cache, String key, CacheEntry<T> entry) {
+        synchronized (cache) {
+            cache.put(key, entry);
+        }
+    }
+
+    private <T> void replaceData(BoundedCache<T> cache, String key, T data) {
+        synchronized (cache) {
+            CacheEntry<T> entry = cache.get(key);
+            if (entry != null) {
+                cache.put(key, new CacheEntry<>(data, entry.getEtag(), entry.getTimestamp()));
+            }
+        }
+    }
+
+    private <T> CacheEntry<T> get(BoundedCache<T> cache, String key) {
+        synchronized (cache) {
+            CacheEntry<T> entry = cache.get(key);
+            if (entry != null && isExpired(entry)) {
+                cache.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+            lookups.incrementAndGet();
+            return entry;
+        }
+    }
+
+    private boolean isExpired(CacheEntry<?> entry) {
+        return entry.getTimestamp().plus(ttl).isBefore(Instant.now());
+    }
+
+    private VideoStats statsOf(YoutubeVideo video) {
+        return new VideoStats(video.getChannelId(), valueOf(video.getViewCount()),
+            valueOf(video.getLikeCount()), valueOf(video.getCommentCount()));
+    }
+
+    private long valueOf(Long value) {
+        return value != null ? value : 0L;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package com.example.producer.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.producer.service.VideoCacheService.CacheEntry;
+import com.example.producer.service.VideoCacheService.ChannelStats;
+import com.example.producer.service.VideoCacheService.VideoStats;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Saves the ETags of the single-ID lookups behind {@code /search} to a local
+ * file, so those lookups can still get a 304 right after a restart. The
+ * snapshot is written periodically and on shutdown, and read back at startup.
+ *
+ * This is all it saves. The background refresh fetches videos and channels
+ * in batches of up to 50 IDs whose membership changes from cycle to cycle; no
+ * ETag matches such a request, so the refresh pays the same quota before and
+ * after a restart, and sending each cached video on its own conditional
+ * request would cost one call per video instead of one per 50. The snapshot
+ * therefore only keeps what a conditional request needs: entries without an
+ * ETag are left out, a video entry is its ETag and age only, and a channel
+ * entry also keeps the statistics a 304 is answered from.
+ *
+ * File layout: magic, format version, then the video entries and the channel
+ * entries, each prefixed by its count. Entries are written least recently used
+ * first so restoring them keeps the LRU order. Version 1 files, which also
+ * held the video statistics, are still read.
+ */
+@Service
+public class VideoCacheSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoCacheSnapshotService.class);
+    private static final int MAGIC = 0x59544343; // "YTCC"
+    private static final int FORMAT_VERSION = 2;
+
+    private final VideoCacheService cacheService;
+    private final Path snapshotFile;
+
+    public VideoCacheSnapshotService(VideoCacheService cacheService,
+                                     @Value("${youtube.cache.snapshot-file:data/youtube-cache.snapshot}") String snapshotFile) {
+        this.cacheService = cacheService;
+        this.snapshotFile = Paths.get(snapshotFile);
+    }
+
+    @PostConstruct
+    public void restore() {
+        if (!Files.exists(snapshotFile)) {
+            logger.info("No cache snapshot at {}, starting with an empty cache", snapshotFile);
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC) {
+                logger.warn("Ignoring cache snapshot {}: not a cache snapshot file", snapshotFile);
+                return;
+            }
+            int version = in.readUnsignedByte();
+            if (version < 1 || version > FORMAT_VERSION) {
+                logger.warn("Ignoring cache snapshot {}: unsupported format version {}", snapshotFile, version);
+                return;
+            }
+
+            int videos = in.readInt();
+            for (int i = 0; i < videos; i++) {
+                String videoId = in.readUTF();
+                String etag = readNullableString(in);
+                Instant timestamp = Instant.ofEpochMilli(in.readLong());
+                if (version == 1) {
+                    readNullableString(in);
+                    in.skipNBytes(3 * Long.BYTES);
+                }
+                // Only the ETag is read back; the statistics come with the next fetch
+                if (etag != null) {
+                    cacheService.restoreVideo(videoId, new CacheEntry<>(null, etag, timestamp));
+                }
+            }
+
+            int channels = in.readInt();
+            for (int i = 0; i < channels; i++) {
+                String channelId = in.readUTF();
+                String etag = readNullableString(in);
+                Instant timestamp = Instant.ofEpochMilli(in.readLong());
+                ChannelStats stats = new ChannelStats(in.readLong(), in.readLong());
+                if (etag != null) {
+                    cacheService.restoreChannel(channelId, new CacheEntry<>(stats, etag, timestamp));
+                }
+            }
+
+            logger.info("Restored cache snapshot from {} ({} videos, {} channels)", snapshotFile, videos, channels);
+        } catch (IOException e) {
+            logger.warn("Could not read cache snapshot {}, starting with an empty cache: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${youtube.cache.snapshot-interval:300000}",
+               initialDelayString = "${youtube.cache.snapshot-interval:300000}")
+    public void scheduledSave() {
+        save();
+    }
+
+    @PreDestroy
+    public synchronized void save() {
+        Map<String, CacheEntry<VideoStats>> videos = cacheService.getVideoEntries();
+        Map<String, CacheEntry<ChannelStats>> channels = cacheService.getChannelEntries();
+        // An entry without an ETag cannot make a request conditional
+        videos.values().removeIf(entry -> entry.getEtag() == null);
+        channels.values().removeIf(entry -> entry.getEtag() == null);
+        try {
+            Path parent = snapshotFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // Write next to the target and move it into place so a crash never leaves a torn snapshot
+            Path tempFile = Files.createTempFile(parent, "youtube-cache", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                    out.writeInt(MAGIC);
+                    out.writeByte(FORMAT_VERSION);
+
+                    out.writeInt(videos.size());
+                    for (Map.Entry<String, CacheEntry<VideoStats>> entry : videos.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        writeNullableString(out, entry.getValue().getEtag());
+                        out.writeLong(entry.getValue().getTimestamp().toEpochMilli());
+                    }
+
+                    out.writeInt(channels.size());
+                    for (Map.Entry<String, CacheEntry<ChannelStats>> entry : channels.entrySet()) {
+                        ChannelStats stats = entry.getValue().getData();
+                        out.writeUTF(entry.getKey());
+                        writeNullableString(out, entry.getValue().getEtag());
+                        out.writeLong(entry.getValue().getTimestamp().toEpochMilli());
+                        out.writeLong(stats.getSubscriberCount());
+                        out.writeLong(stats.getVideoCount());
+                    }
+                }
+                Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                Files.deleteIfExists(tempFile);
+                throw e;
+            }
+            logger.debug("Saved cache snapshot to {} ({} videos, {} channels)", snapshotFile, videos.size(), channels.size());
+        } catch (IOException e) {
+            logger.error("Could not write cache snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.producer.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * Decides whether a refreshed video is worth publishing.
+ *
+ * A video's meaningful state is its statistics, its channel statistics and
+ * the ID of its latest comment. The fingerprint of that state is remembered
+ * for every published video, and a refresh is only published when the
+ * fingerprint differs from the last published one. Videos without a
+ * remembered fingerprint (e.g. after a restart) are compared against their
+ * previously stored row instead.
+ */
+@Service
+public class VideoChangeDetector {
+
+    private final Map<String, Fingerprint> publishedFingerprints = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * The state that matters, compared field by field: a hash of the counters
+     * would treat e.g. one more view and 31 fewer likes as no change.
+     */
+    private record Fingerprint(long viewCount, long likeCount, long commentCount, long subscriberCount, long videoCount,
+                       String latestCommentId) {
+    }
+
+    private Fingerprint fingerprint(YoutubeVideo video) {
+        return new Fingerprint(valueOf(video.getViewCount()), valueOf(video.getLikeCount()),
+            valueOf(video.getCommentCount()), valueOf(video.getSubscriberCount()), valueOf(video.getVideoCount()),
+            video.getLatestCommentId());
+    }
+
+    /**
+     * Returns {@code true} and remembers the new fingerprint if {@code current}
+     * differs from what was last published for the video.
+     */
+    public boolean checkAndRecord(YoutubeVideo previous, YoutubeVideo current) {
+        Fingerprint fingerprint = fingerprint(current);
+        Fingerprint last = publishedFingerprints.put(current.getVideoId(), fingerprint);
+        if (last == null && previous != null) {
+            last = fingerprint(previous);
+        }
+        if (fingerprint.equals(last)) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        published.incrementAndGet();
+        return true;
+    }
+
+    public void forget(String videoId) {
+        publishedFingerprints.remove(videoId);
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+            "published", published.get(),
+            "suppressed", suppressed.get());
+    }
+
+    private long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.producer.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.producer.model.OutboxEvent;
+import com.example.producer.model.YoutubeVideo;
+import com.example.producer.repository.OutboxEventRepository;
+import com.example.producer.repository.YoutubeVideoRepository;
+
+/**
+ * Deletes videos together with the tombstones that remove them downstream:
+ * both are written in one transaction, so a video is never deleted without
+ * its tombstone being queued in the outbox, nor the other way round.
+ */
+@Service
+public class VideoDeletionService {
+
+    private final YoutubeVideoRepository videoRepository;
+    private final OutboxEventRepository outboxRepository;
+
+    @Value("${kafka.topic.youtube-video-state}")
+    private String videoStateTopic;
+
+    public VideoDeletionService(YoutubeVideoRepository videoRepository, OutboxEventRepository outboxRepository) {
+        this.videoRepository = videoRepository;
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Deletes whichever of the videos exist.
+     *
+     * @return the IDs that were deleted
+     */
+    @Transactional
+    public List<String> delete(Collection<String> videoIds) {
+        List<String> deleted = new ArrayList<>();
+        for (YoutubeVideo video : videoRepository.findAllById(videoIds)) {
+            deleted.add(video.getVideoId());
+        }
+        if (deleted.isEmpty()) {
+            return deleted;
+        }
+
+        videoRepository.deleteAllByIdInBatch(deleted);
+        List<OutboxEvent> tombstones = new ArrayList<>(deleted.size());
+        for (String videoId : deleted) {
+            tombstones.add(OutboxEvent.tombstone(videoStateTopic, videoId));
+        }
+        outboxRepository.saveAll(tombstones);
+        return deleted;
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.producer.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.producer.model.VideoStatsRollup;
+import com.example.producer.model.VideoStatsRollup.Resolution;
+import com.example.producer.model.VideoStatsSample;
+import com.example.producer.model.YoutubeVideo;
+import com.example.producer.repository.VideoStatsRollupRepository;
+import com.example.producer.repository.VideoStatsSampleRepository;
+
+/**
+ * History of each video's statistics. Every stored refresh is a sample of
+ * the video's counters: samples are queued in memory and written in one batch
+ * per flush, both as raw rows ({@link VideoStatsSample}) and merged into
+ * minute, hour and day buckets ({@link VideoStatsRollup}). Each tier is kept
+ * for its own retention period, and range queries only ever read buckets.
+ * Samples still queued when the application stops are lost, leaving a gap in
+ * the history.
+ */
+@Service
+public class VideoHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoHistoryService.class);
+
+    private final VideoStatsSampleRepository sampleRepository;
+    private final VideoStatsRollupRepository rollupRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentLinkedDeque<VideoStatsSample> queue = new ConcurrentLinkedDeque<>();
+    private final Map<Resolution, Long> retentionMillis = new EnumMap<>(Resolution.class);
+
+    @Value("${youtube.history.retention.raw:86400000}")
+    private long rawRetentionMillis;
+
+    @Value("${youtube.history.max-points:2000}")
+    private int maxPoints;
+
+    public VideoHistoryService(VideoStatsSampleRepository sampleRepository,
+                               VideoStatsRollupRepository rollupRepository,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${youtube.history.retention.minute:172800000}") long minuteRetentionMillis,
+                               @Value("${youtube.history.retention.hour:7776000000}") long hourRetentionMillis,
+                               @Value("${youtube.history.retention.day:0}") long dayRetentionMillis) {
+        this.sampleRepository = sampleRepository;
+        this.rollupRepository = rollupRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.retentionMillis.put(Resolution.MINUTE, minuteRetentionMillis);
+        this.retentionMillis.put(Resolution.HOUR, hourRetentionMillis);
+        this.retentionMillis.put(Resolution.DAY, dayRetentionMillis);
+    }
+
+    /** One point of a history range, at the start of its step. */
+    public static class Point {
+        private final Instant time;
+        private final Long viewCount;
+        private final Long likeCount;
+        private final Long commentCount;
+        private final Long subscriberCount;
+        private final Long viewGain;
+        private final Long likeGain;
+        private final Long commentGain;
+        private final int samples;
+
+        public Point(Instant time, VideoStatsRollup first, VideoStatsRollup last, VideoStatsRollup previous,
+                     int samples) {
+            this.time = time;
+            this.viewCount = last.getViewCount();
+            this.likeCount = last.getLikeCount();
+            this.commentCount = last.getCommentCount();
+            this.subscriberCount = last.getSubscriberCount();
+            // Growth since the previous point, or within the step for the first one
+            this.viewGain = gain(previous != null ? previous.getViewCount() : first.getFirstViewCount(), viewCount);
+            this.likeGain = gain(previous != null ? previous.getLikeCount() : first.getFirstLikeCount(), likeCount);
+            this.commentGain = gain(previous != null ? previous.getCommentCount() : first.getFirstCommentCount(),
+                commentCount);
+            this.samples = samples;
+        }
+
+        private static Long gain(Long from, Long to) {
+            return from != null && to != null ? to - from : null;
+        }
+
+        public Instant getTime() { return time; }
+        public Long getViewCount() { return viewCount; }
+        public Long getLikeCount() { return likeCount; }
+        public Long getCommentCount() { return commentCount; }
+        public Long getSubscriberCount() { return subscriberCount; }
+        public Long getViewGain() { return viewGain; }
+        public Long getLikeGain() { return likeGain; }
+        public Long getCommentGain() { return commentGain; }
+        public int getSamples() { return samples; }
+    }
+
+    public static class History {
+        private final String videoId;
+        private final Instant from;
+        private final Instant to;
+        private final Duration step;
+        private final Resolution resolution;
+        private final List<Point> points;
+
+        public History(String videoId, Instant from, Instant to, Duration step, Resolution resolution,
+                       List<Point> points) {
+            this.videoId = videoId;
+            this.from = from;
+            this.to = to;
+            this.step = step;
+            this.resolution = resolution;
+            this.points = points;
+        }
+
+        public String getVideoId() { return videoId; }
+        public Instant getFrom() { return from; }
+        public Instant getTo() { return to; }
+        public Duration getStep() { return step; }
+        public Resolution getResolution() { return resolution; }
+        public List<Point> getPoints() { return points; }
+    }
+
+    /** Queues a sample of a stored video; it is written on the next flush. */
+    public void record(YoutubeVideo video) {
+        Instant sampledAt = video.getFetchedAt() != null ? video.getFetchedAt() : Instant.now();
+        queue.add(new VideoStatsSample(video, sampledAt));
+    }
+
+    /**
+     * Writes the queued samples and merges them into their buckets, reading
+     * and saving each tier's affected buckets in one query each. If the
+     * transaction fails the samples go back to the front of the queue, ahead
+     * of anything recorded since, and are retried on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${youtube.history.flush-interval:60000}",
+            initialDelayString = "${youtube.history.flush-interval:60000}")
+    public void flush() {
+        List<VideoStatsSample> samples = new ArrayList<>();
+        for (VideoStatsSample sample = queue.poll(); sample != null; sample = queue.poll()) {
+            samples.add(sample);
+        }
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                sampleRepository.saveAll(samples);
+
+                for (Resolution resolution : Resolution.values()) {
+                    rollupRepository.saveAll(merge(resolution, samples));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Newest first, so the queue keeps sample order for every video. The
+            // ids handed out by the rolled back insert are cleared so they insert again
+            for (int i = samples.size() - 1; i >= 0; i--) {
+                samples.get(i).setId(null);
+                queue.addFirst(samples.get(i));
+            }
+            logger.error("Failed to record {} video statistics samples, will retry: {}",
+                samples.size(), e.getMessage());
+            return;
+        }
+        logger.info("Recorded {} video statistics samples", samples.size());
+    }
+
+    private List<VideoStatsRollup> merge(Resolution resolution, List<VideoStatsSample> samples) {
+        Set<String> videoIds = new HashSet<>();
+        Set<Instant> bucketStarts = new HashSet<>();
+        for (VideoStatsSample sample : samples) {
+            videoIds.add(sample.getVideoId());
+            bucketStarts.add(resolution.bucketOf(sample.getSampledAt()));
+        }
+
+        Map<String, VideoStatsRollup> buckets = new LinkedHashMap<>();
+        for (VideoStatsRollup bucket
+                : rollupRepository.findByResolutionAndVideoIdInAndBucketStartIn(resolution, videoIds, bucketStarts)) {
+            buckets.put(bucket.getVideoId() + "@" + bucket.getBucketStart(), bucket);
+        }
+        // Queue order is sample order for any one video
+        for (VideoStatsSample sample : samples) {
+            Instant bucketStart = resolution.bucketOf(sample.getSampledAt());
+            buckets.computeIfAbsent(sample.getVideoId() + "@" + bucketStart,
+                    key -> new VideoStatsRollup(sample.getVideoId(), resolution, bucketStart))
+                .add(sample);
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    /** Drops raw samples and buckets that are past their tier's retention. */
+    @Scheduled(fixedDelayString = "${youtube.history.retention-interval:3600000}")
+    public void applyRetention() {
+        Instant now = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            int expired = sampleRepository.deleteExpired(now.minusMillis(rawRetentionMillis));
+            for (Resolution resolution : Resolution.values()) {
+                long retention = retentionMillis.get(resolution);
+                if (retention > 0) {
+                    expired += rollupRepository.deleteExpired(resolution, now.minusMillis(retention));
+                }
+            }
+            if (expired > 0) {
+                logger.info("Removed {} expired history rows", expired);
+            }
+        });
+    }
+
+    /**
+     * The statistics of a video from {@code from} to {@code to}, one point per
+     * {@code step}. Reads the coarsest bucket tier that is no coarser than the
+     * step and still covers {@code from}; if only a coarser tier covers it,
+     * the step is widened to that tier's bucket size.
+     *
+     * @throws IllegalArgumentException for an empty range or too many points
+     */
+    public History getHistory(String videoId, Instant from, Instant to, Duration step) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        if (step.compareTo(Resolution.MINUTE.getSize()) < 0) {
+            throw new IllegalArgumentException("'step' must be at least one minute");
+        }
+
+        Resolution resolution = pickResolution(from, step);
+        if (step.compareTo(resolution.getSize()) < 0) {
+            step = resolution.getSize();
+        }
+        long stepMillis = step.toMillis();
+        long span = to.toEpochMilli() - from.toEpochMilli();
+        if (span / stepMillis > maxPoints) {
+            throw new IllegalArgumentException("Range has more than " + maxPoints + " points, use a larger 'step'");
+        }
+
+        List<VideoStatsRollup> buckets = rollupRepository
+            .findByVideoIdAndResolutionAndBucketStartBetweenOrderByBucketStartAsc(
+                videoId, resolution, resolution.bucketOf(from), to);
+
+        List<Point> points = new ArrayList<>();
+        VideoStatsRollup previous = null;
+        int i = 0;
+        while (i < buckets.size()) {
+            long pointStart = Math.floorDiv(buckets.get(i).getBucketStart().toEpochMilli(), stepMillis) * stepMillis;
+            VideoStatsRollup first = buckets.get(i);
+            VideoStatsRollup last = first;
+            int samples = 0;
+            while (i < buckets.size()
+                    && buckets.get(i).getBucketStart().toEpochMilli() < pointStart + stepMillis) {
+                last = buckets.get(i);
+                samples += last.getSamples();
+                i++;
+            }
+            points.add(new Point(Instant.ofEpochMilli(pointStart), first, last, previous, samples));
+            previous = last;
+        }
+        return new History(videoId, from, to, step, resolution, points);
+    }
+
+    private Resolution pickResolution(Instant from, Duration step) {
+        Instant now = Instant.now();
+        Resolution[] tiers = Resolution.values();
+        for (int i = tiers.length - 1; i >= 0; i--) {
+            if (tiers[i].getSize().compareTo(step) <= 0 && covers(tiers[i], from, now)) {
+                return tiers[i];
+            }
+        }
+        for (Resolution resolution : tiers) {
+            if (covers(resolution, from, now)) {
+                return resolution;
+            }
+        }
+        return Resolution.DAY;
+    }
+
+    private boolean covers(Resolution resolution, Instant from, Instant now) {
+        long retention = retentionMillis.get(resolution);
+        return retention <= 0 || !from.isBefore(now.minusMillis(retention));
+    }
+}
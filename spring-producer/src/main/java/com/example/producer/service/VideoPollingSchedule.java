@@ -0,0 +1,173 @@
+package com.example.producer.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * Gives every tracked video its own polling interval.
+ *
+ * After each poll the view, like and comment counts are compared with the
+ * previous poll. Videos that moved by at least {@code hot-threshold} (relative)
+ * are polled twice as often, videos that did not move at all back off
+ * exponentially, and anything in between keeps its interval. Due videos are
+ * kept in a priority queue ordered by next poll time.
+ */
+@Service
+public class VideoPollingSchedule {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoPollingSchedule.class);
+
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long initialIntervalMillis;
+    private final double hotThreshold;
+
+    private final Map<String, PollState> states = new HashMap<>();
+    private final PriorityQueue<ScheduledPoll> queue =
+        new PriorityQueue<>((a, b) -> Long.compare(a.dueAtMillis, b.dueAtMillis));
+
+    private static class PollState {
+        private long intervalMillis;
+        private long nextPollMillis;
+        private long viewCount;
+        private long likeCount;
+        private long commentCount;
+        private boolean inFlight;
+    }
+
+    private static class ScheduledPoll {
+        private final String videoId;
+        private final long dueAtMillis;
+
+        private ScheduledPoll(String videoId, long dueAtMillis) {
+            this.videoId = videoId;
+            this.dueAtMillis = dueAtMillis;
+        }
+    }
+
+    public VideoPollingSchedule(@Value("${youtube.poll.min-interval:60000}") long minIntervalMillis,
+                                @Value("${youtube.poll.max-interval:86400000}") long maxIntervalMillis,
+                                @Value("${youtube.fetch.interval:300000}") long initialIntervalMillis,
+                                @Value("${youtube.poll.hot-threshold:0.01}") double hotThreshold) {
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = Math.max(maxIntervalMillis, minIntervalMillis);
+        this.initialIntervalMillis = clamp(initialIntervalMillis);
+        this.hotThreshold = hotThreshold;
+    }
+
+    /**
+     * Starts tracking a video if it is not tracked yet. The first poll is due
+     * one initial interval after its last fetch.
+     */
+    public synchronized void track(YoutubeVideo video) {
+        if (states.containsKey(video.getVideoId())) {
+            return;
+        }
+        PollState state = new PollState();
+        state.intervalMillis = initialIntervalMillis;
+        remember(state, video);
+        long lastFetched = video.getFetchedAt() != null ? video.getFetchedAt().toEpochMilli() : 0;
+        states.put(video.getVideoId(), state);
+        schedule(video.getVideoId(), state, lastFetched + state.intervalMillis);
+    }
+
+    public synchronized void untrack(String videoId) {
+        // Queue entries for the video are dropped lazily when they come due
+        states.remove(videoId);
+    }
+
+    /**
+     * Removes and returns up to {@code limit} videos whose next poll time has
+     * passed, most overdue first. Each returned video must be reported back
+     * through {@link #recordPoll(YoutubeVideo)} or {@link #recordFailure(String)}.
+     */
+    public synchronized List<String> pollDue(long nowMillis, int limit) {
+        List<String> due = new ArrayList<>();
+        while (due.size() < limit && !queue.isEmpty() && queue.peek().dueAtMillis <= nowMillis) {
+            ScheduledPoll poll = queue.poll();
+            PollState state = states.get(poll.videoId);
+            if (state == null || state.inFlight || state.nextPollMillis != poll.dueAtMillis) {
+                continue;
+            }
+            state.inFlight = true;
+            due.add(poll.videoId);
+        }
+        return due;
+    }
+
+    public synchronized void recordPoll(YoutubeVideo video) {
+        PollState state = states.get(video.getVideoId());
+        if (state == null) {
+            return;
+        }
+        double change = Math.max(relativeChange(state.viewCount, video.getViewCount()),
+            Math.max(relativeChange(state.likeCount, video.getLikeCount()),
+                relativeChange(state.commentCount, video.getCommentCount())));
+
+        long previousInterval = state.intervalMillis;
+        if (change >= hotThreshold) {
+            state.intervalMillis = clamp(state.intervalMillis / 2);
+        } else if (change == 0) {
+            state.intervalMillis = clamp(state.intervalMillis * 2);
+        }
+        if (state.intervalMillis != previousInterval) {
+            logger.debug("Polling interval for video {} changed from {} ms to {} ms (change {})",
+                video.getVideoId(), previousInterval, state.intervalMillis, change);
+        }
+
+        remember(state, video);
+        state.inFlight = false;
+        schedule(video.getVideoId(), state, System.currentTimeMillis() + state.intervalMillis);
+    }
+
+    /**
+     * Puts a video that could not be refreshed back in the queue at its
+     * current interval, without treating it as unchanged.
+     */
+    public synchronized void recordFailure(String videoId) {
+        PollState state = states.get(videoId);
+        if (state == null) {
+            return;
+        }
+        state.inFlight = false;
+        schedule(videoId, state, System.currentTimeMillis() + state.intervalMillis);
+    }
+
+    public synchronized int size() {
+        return states.size();
+    }
+
+    private void schedule(String videoId, PollState state, long dueAtMillis) {
+        state.nextPollMillis = dueAtMillis;
+        queue.add(new ScheduledPoll(videoId, dueAtMillis));
+    }
+
+    private void remember(PollState state, YoutubeVideo video) {
+        state.viewCount = valueOf(video.getViewCount());
+        state.likeCount = valueOf(video.getLikeCount());
+        state.commentCount = valueOf(video.getCommentCount());
+    }
+
+    private double relativeChange(long previous, Long current) {
+        long delta = Math.abs(valueOf(current) - previous);
+        return delta == 0 ? 0 : (double) delta / Math.max(previous, 1);
+    }
+
+    private long valueOf(Long value) {
+        return value != null ? value : 0L;
+    }
+
+    private long clamp(long intervalMillis) {
+        return Math.max(minIntervalMillis, Math.min(maxIntervalMillis, intervalMillis));
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.producer.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.producer.model.YoutubeVideo;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Runs the per-video refresh pipeline (comments, cache, save, publish) on a
+ * bounded pool so one slow video cannot hold up the rest of the cycle.
+ * Statistics and channels are still fetched up front in bulk; only the work
+ * that has to happen per video is spread across the pool.
+ */
+@Service
+public class VideoRefreshEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoRefreshEngine.class);
+
+    private final YouTubeService youtubeService;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final long cycleDeadlineMillis;
+    // Refreshes running on the pool, including ones that outlived their cycle
+    private final AtomicInteger running = new AtomicInteger();
+
+    private volatile CycleReport lastReport;
+
+    public static class CycleReport {
+        private final Instant startedAt;
+        private final int requested;
+        private final int refreshed;
+        private final int failed;
+        private final int timedOut;
+        private final long batchFetchMillis;
+        private final long totalMillis;
+        private final long averageVideoMillis;
+        private final long slowestVideoMillis;
+        private final int maxInFlight;
+        private final int stillRunning;
+
+        public CycleReport(Instant startedAt, int requested, int refreshed, int failed, int timedOut,
+                           long batchFetchMillis, long totalMillis, long averageVideoMillis,
+                           long slowestVideoMillis, int maxInFlight, int stillRunning) {
+            this.startedAt = startedAt;
+            this.requested = requested;
+            this.refreshed = refreshed;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.batchFetchMillis = batchFetchMillis;
+            this.totalMillis = totalMillis;
+            this.averageVideoMillis = averageVideoMillis;
+            this.slowestVideoMillis = slowestVideoMillis;
+            this.maxInFlight = maxInFlight;
+            this.stillRunning = stillRunning;
+        }
+
+        public Instant getStartedAt() { return startedAt; }
+        public int getRequested() { return requested; }
+        public int getRefreshed() { return refreshed; }
+        public int getFailed() { return failed; }
+        public int getTimedOut() { return timedOut; }
+        public long getBatchFetchMillis() { return batchFetchMillis; }
+        public long getTotalMillis() { return totalMillis; }
+        public long getAverageVideoMillis() { return averageVideoMillis; }
+        public long getSlowestVideoMillis() { return slowestVideoMillis; }
+        public int getMaxInFlight() { return maxInFlight; }
+        /**
+         * Workers still busy with a timed-out refresh when the cycle ended,
+         * typically blocked on I/O that cancelling cannot interrupt. They are
+         * not available to the next cycle until their request times out.
+         */
+        public int getStillRunning() { return stillRunning; }
+    }
+
+    public VideoRefreshEngine(YouTubeService youtubeService,
+                              @Value("${youtube.refresh.max-in-flight:8}") int maxInFlight,
+                              @Value("${youtube.refresh.cycle-deadline:50000}") long cycleDeadlineMillis) {
+        this.youtubeService = youtubeService;
+        this.maxInFlight = maxInFlight;
+        this.cycleDeadlineMillis = cycleDeadlineMillis;
+        // A fixed pool caps the number of videos being refreshed at the same time
+        this.executor = Executors.newFixedThreadPool(maxInFlight, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "video-refresh-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Refreshes the given videos and returns the ones that completed before the
+     * cycle deadline. Videos that fail or run past the deadline are skipped and
+     * picked up again in a later cycle.
+     */
+    public List<YoutubeVideo> refresh(Collection<YoutubeVideo> videos) {
+        Instant startedAt = Instant.now();
+        long cycleStart = System.nanoTime();
+        long deadline = cycleStart + TimeUnit.MILLISECONDS.toNanos(cycleDeadlineMillis);
+
+        List<YouTubeService.PendingRefresh> pending = youtubeService.fetchRefreshBatch(videos);
+        long batchFetchNanos = System.nanoTime() - cycleStart;
+
+        AtomicLong videoNanosTotal = new AtomicLong();
+        AtomicLong videoNanosMax = new AtomicLong();
+        List<Future<YoutubeVideo>> futures = new ArrayList<>(pending.size());
+        for (YouTubeService.PendingRefresh item : pending) {
+            futures.add(executor.submit(() -> {
+                long start = System.nanoTime();
+                running.incrementAndGet();
+                try {
+                    return youtubeService.completeRefresh(item);
+                } finally {
+                    running.decrementAndGet();
+                    long elapsed = System.nanoTime() - start;
+                    videoNanosTotal.addAndGet(elapsed);
+                    videoNanosMax.accumulateAndGet(elapsed, Math::max);
+                }
+            }));
+        }
+
+        List<YoutubeVideo> refreshed = new ArrayList<>(pending.size());
+        int failed = 0;
+        int timedOut = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<YoutubeVideo> future = futures.get(i);
+            String videoId = pending.get(i).getVideoId();
+            try {
+                long remaining = deadline - System.nanoTime();
+                refreshed.add(future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException | CancellationException e) {
+                // Interrupts the worker, but not a blocking read; the client's read timeout ends that
+                future.cancel(true);
+                timedOut++;
+                logger.warn("Refresh of video {} did not finish before the cycle deadline", videoId);
+            } catch (ExecutionException e) {
+                failed++;
+                logger.error("Error updating video ID: {} - {}", videoId, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.subList(i, futures.size()).forEach(f -> f.cancel(true));
+                timedOut += futures.size() - i;
+                break;
+            }
+        }
+
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cycleStart);
+        int completed = refreshed.size() + failed;
+        CycleReport report = new CycleReport(
+            startedAt,
+            videos.size(),
+            refreshed.size(),
+            failed + (videos.size() - pending.size()),
+            timedOut,
+            TimeUnit.NANOSECONDS.toMillis(batchFetchNanos),
+            totalMillis,
+            completed > 0 ? TimeUnit.NANOSECONDS.toMillis(videoNanosTotal.get() / completed) : 0,
+            TimeUnit.NANOSECONDS.toMillis(videoNanosMax.get()),
+            maxInFlight,
+            running.get());
+        lastReport = report;
+
+        logger.info("Refresh cycle finished in {} ms (batch fetch {} ms): {} requested, {} refreshed, {} failed, {} timed out, "
+                + "avg {} ms / slowest {} ms per video with {} in flight, {} still running",
+            report.getTotalMillis(), report.getBatchFetchMillis(), report.getRequested(), report.getRefreshed(),
+            report.getFailed(), report.getTimedOut(), report.getAverageVideoMillis(), report.getSlowestVideoMillis(),
+            report.getMaxInFlight(), report.getStillRunning());
+
+        return refreshed;
+    }
+
+    public CycleReport getLastReport() {
+        return lastReport;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
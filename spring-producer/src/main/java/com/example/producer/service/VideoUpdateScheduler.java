@@ -1,10 +1,14 @@
 package com.example.producer.service;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -15,91 +19,108 @@ import com.example.producer.repository.YoutubeVideoRepository;
 public class VideoUpdateScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(VideoUpdateScheduler.class);
+    // videos.list and channels.list take 50 IDs per call
+    private static final int BATCH_SIZE = 50;
 
-    private final YouTubeService youtubeService;
-    private final KafkaProducerService kafkaProducerService;
+    private final VideoRefreshEngine refreshEngine;
     private final YoutubeVideoRepository videoRepository;
+    private final QuotaBudgetService quotaBudget;
+    private final VideoPollingSchedule pollingSchedule;
 
-    @Value("${youtube.fetch.interval:300000}") // Default to 5 minutes if not specified
-    private long fetchInterval;
+    @Value("${youtube.comments.max-pages:5}")
+    private int maxCommentPages;
 
-    public VideoUpdateScheduler(YouTubeService youtubeService,
-                              KafkaProducerService kafkaProducerService,
-                              YoutubeVideoRepository videoRepository) {
-        this.youtubeService = youtubeService;
-        this.kafkaProducerService = kafkaProducerService;
+    public VideoUpdateScheduler(VideoRefreshEngine refreshEngine,
+                              YoutubeVideoRepository videoRepository,
+                              QuotaBudgetService quotaBudget,
+                              VideoPollingSchedule pollingSchedule) {
+        this.refreshEngine = refreshEngine;
         this.videoRepository = videoRepository;
+        this.quotaBudget = quotaBudget;
+        this.pollingSchedule = pollingSchedule;
     }
 
-    @Scheduled(fixedDelayString = "${youtube.fetch.interval:300000}") // Use the same interval from properties
-    public void updateVideoData() {
-        logger.info("Starting scheduled video data update...");
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTrackedVideos() {
         List<YoutubeVideo> videos = videoRepository.findAll();
-        
-        if (videos.isEmpty()) {
+        for (YoutubeVideo video : videos) {
+            pollingSchedule.track(video);
+        }
+        logger.info("Tracking {} videos for adaptive polling", videos.size());
+    }
+
+    // Each video has its own polling interval; the tick only decides how often due videos are collected
+    @Scheduled(fixedDelayString = "${youtube.poll.tick-interval:60000}", initialDelayString = "${youtube.poll.tick-interval:60000}")
+    public void updateVideoData() {
+        if (pollingSchedule.size() == 0) {
             logger.info("No videos found in database. Please add videos through the web interface.");
             return;
         }
-        
+
+        // Only take as many due videos as the quota budget can pay for, so the
+        // daily quota is spread over the whole day
+        int affordable = affordableVideos(quotaBudget.availableBackgroundUnits());
+        if (affordable == 0) {
+            logger.info("No YouTube API quota available for background refresh, skipping this cycle");
+            return;
+        }
+        List<String> dueIds = pollingSchedule.pollDue(System.currentTimeMillis(), affordable);
+        if (dueIds.isEmpty()) {
+            logger.debug("No videos due for polling");
+            return;
+        }
+
+        logger.info("Starting scheduled video data update for {} due videos...", dueIds.size());
+        List<YoutubeVideo> videos = videoRepository.findAllById(dueIds);
+        Set<String> found = new HashSet<>();
         for (YoutubeVideo video : videos) {
-            try {
-                logger.info("Updating data for video ID: {} ({})", video.getVideoId(), video.getTitle());
-                
-                // Fetch fresh data with ETag support
-                YoutubeVideo updatedVideo = youtubeService.fetchVideoData(video.getVideoUrl());
-                
-                // Only send to Kafka if there are changes in comments or statistics
-                if (hasSignificantChanges(video, updatedVideo)) {
-                    kafkaProducerService.sendVideoData(updatedVideo);
-                    logger.info("Changes detected, sent updated data for video: {} ({})", 
-                        video.getVideoId(), video.getTitle());
-                } else {
-                    logger.debug("No significant changes for video: {} ({})", 
-                        video.getVideoId(), video.getTitle());
-                }
-                
-            } catch (Exception e) {
-                logger.error("Error updating video ID: {} - {}", video.getVideoId(), e.getMessage());
-                // Continue with next video even if one fails
+            found.add(video.getVideoId());
+        }
+        for (String videoId : dueIds) {
+            if (!found.contains(videoId)) {
+                // Deleted from the database since it was scheduled
+                pollingSchedule.untrack(videoId);
             }
         }
-        logger.info("Completed scheduled video data update for {} videos", videos.size());
-    }
-
-    private boolean hasSignificantChanges(YoutubeVideo oldVideo, YoutubeVideo newVideo) {
-        logger.debug("Checking for changes in video: {}", newVideo.getVideoId());
-        logger.debug("Old comment: '{}', New comment: '{}'", 
-            oldVideo.getCommentText(), newVideo.getCommentText());
         
-        // Always process if either video has comments
-        if (oldVideo.getCommentText() != null || newVideo.getCommentText() != null) {
-            logger.info("Video {} has comments, will process", newVideo.getVideoId());
-            return true;
+        // Fetch fresh data in bulk and refresh the videos concurrently; the
+        // refresh itself publishes whatever actually changed
+        List<YoutubeVideo> updatedVideos;
+        try {
+            updatedVideos = refreshEngine.refresh(videos);
+        } catch (Exception e) {
+            logger.error("Error refreshing video data: {}", e.getMessage());
+            videos.forEach(video -> pollingSchedule.recordFailure(video.getVideoId()));
+            return;
         }
 
-        // Check if statistics have changed
-        boolean statsChanged = !oldVideo.getCommentCount().equals(newVideo.getCommentCount()) ||
-            !oldVideo.getLikeCount().equals(newVideo.getLikeCount()) ||
-            !oldVideo.getViewCount().equals(newVideo.getViewCount()) ||
-            !oldVideo.getSubscriberCount().equals(newVideo.getSubscriberCount()) ||
-            !oldVideo.getVideoCount().equals(newVideo.getVideoCount());
-            
-        if (statsChanged) {
-            logger.info("Video {} stats have changed, will process", newVideo.getVideoId());
-            logger.debug("Old stats - Views: {}, Likes: {}, Comments: {}, Subscribers: {}, Videos: {}", 
-                oldVideo.getViewCount(), oldVideo.getLikeCount(), oldVideo.getCommentCount(),
-                oldVideo.getSubscriberCount(), oldVideo.getVideoCount());
-            logger.debug("New stats - Views: {}, Likes: {}, Comments: {}, Subscribers: {}, Videos: {}", 
-                newVideo.getViewCount(), newVideo.getLikeCount(), newVideo.getCommentCount(),
-                newVideo.getSubscriberCount(), newVideo.getVideoCount());
+        Set<String> unfinished = new HashSet<>(found);
+        for (YoutubeVideo updatedVideo : updatedVideos) {
+            pollingSchedule.recordPoll(updatedVideo);
+            unfinished.remove(updatedVideo.getVideoId());
         }
+        // Whatever is left failed or missed the cycle deadline
+        unfinished.forEach(pollingSchedule::recordFailure);
 
-        return statsChanged;
+        logger.info("Completed scheduled video data update for {} videos", videos.size());
     }
 
-    private boolean stringsEqual(String s1, String s2) {
-        if (s1 == null && s2 == null) return true;
-        if (s1 == null || s2 == null) return false;
-        return s1.equals(s2);
+    /**
+     * How many videos a cycle can refresh within {@code budgetUnits}. Each video
+     * may page through up to {@code youtube.comments.max-pages} commentThreads.list
+     * calls, and each chunk of 50 videos costs one videos.list and one
+     * channels.list call, so the worst case is reserved up front.
+     */
+    private int affordableVideos(long budgetUnits) {
+        long perVideo = (long) Math.max(1, maxCommentPages) * QuotaBudgetService.Endpoint.COMMENT_THREADS_LIST.getCost();
+        long perBatch = QuotaBudgetService.Endpoint.VIDEOS_LIST.getCost()
+            + QuotaBudgetService.Endpoint.CHANNELS_LIST.getCost();
+        long perFullBatch = BATCH_SIZE * perVideo + perBatch;
+
+        long fullBatches = budgetUnits / perFullBatch;
+        long remainder = budgetUnits - fullBatches * perFullBatch;
+        // Less than a full batch is left, so this is always below BATCH_SIZE
+        long rest = remainder > perBatch ? (remainder - perBatch) / perVideo : 0;
+        return (int) Math.min(Integer.MAX_VALUE, fullBatches * BATCH_SIZE + rest);
     }
-} 
\ No newline at end of file
+}
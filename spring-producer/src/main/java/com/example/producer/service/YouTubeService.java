@@ -3,7 +3,16 @@ package com.example.producer.service;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,29 +20,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.producer.model.OutboxEvent;
 import com.example.producer.model.YoutubeVideo;
+import com.example.producer.repository.OutboxEventRepository;
 import com.example.producer.repository.YoutubeVideoRepository;
-import com.example.producer.service.VideoCacheService.CacheEntry;
+import com.example.producer.service.VideoCacheService.ChannelStats;
+import com.example.producer.service.VideoCacheService.VideoStats;
 import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.Channel;
 import com.google.api.services.youtube.model.ChannelListResponse;
 import com.google.api.services.youtube.model.Video;
 import com.google.api.services.youtube.model.VideoListResponse;
-import com.google.api.services.youtube.model.CommentThread;
-import com.google.api.services.youtube.model.CommentThreadListResponse;
 
 @Service
 public class YouTubeService {
 
     private static final Logger logger = LoggerFactory.getLogger(YouTubeService.class);
+    // videos.list and channels.list accept at most 50 IDs per request
+    private static final int MAX_IDS_PER_REQUEST = 50;
     private static final Pattern VIDEO_ID_PATTERN = Pattern.compile("(?<=watch\\?v=|/videos/|embed/|youtu.be/|/v/|/e/|watch\\?v%3D|watch\\?feature=player_embedded&v=|%2Fvideos%2F|embed%\u200C\u200B2F|youtu.be%2F|%2Fv%2F)[^#&?\\n]*");
 
     private final YouTube youtubeService;
     private final YoutubeVideoRepository videoRepository;
     private final VideoCacheService cacheService;
     private final KafkaProducerService kafkaProducerService;
+    private final QuotaBudgetService quotaBudget;
+    private final VideoPollingSchedule pollingSchedule;
+    private final CommentIngestionService commentIngestion;
+    private final VideoChangeDetector changeDetector;
+    private final OutboxEventRepository outboxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final VideoHistoryService historyService;
     
     @Value("${youtube.api.key}")
     private String apiKey;
@@ -41,11 +61,25 @@ public class YouTubeService {
     public YouTubeService(YouTube youtubeService, 
                          YoutubeVideoRepository videoRepository,
                          VideoCacheService cacheService,
-                         KafkaProducerService kafkaProducerService) {
+                         KafkaProducerService kafkaProducerService,
+                         QuotaBudgetService quotaBudget,
+                         VideoPollingSchedule pollingSchedule,
+                         CommentIngestionService commentIngestion,
+                         VideoChangeDetector changeDetector,
+                         OutboxEventRepository outboxRepository,
+                         TransactionTemplate transactionTemplate,
+                         VideoHistoryService historyService) {
         this.youtubeService = youtubeService;
         this.videoRepository = videoRepository;
         this.cacheService = cacheService;
         this.kafkaProducerService = kafkaProducerService;
+        this.quotaBudget = quotaBudget;
+        this.pollingSchedule = pollingSchedule;
+        this.commentIngestion = commentIngestion;
+        this.changeDetector = changeDetector;
+        this.outboxRepository = outboxRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.historyService = historyService;
     }
 
     public String extractVideoId(String videoUrl) {
@@ -65,7 +99,7 @@ public class YouTubeService {
             String videoId = extractVideoId(videoUrl);
             
             // Check cache first
-            VideoCacheService.CacheEntry<YoutubeVideo> cachedVideo = cacheService.getCachedVideo(videoId);
+            VideoCacheService.CacheEntry<VideoStats> cachedVideo = cacheService.getCachedVideo(videoId);
             String videoEtag = cachedVideo != null ? cachedVideo.getEtag() : null;
 
             // Fetch video details with ETag
@@ -78,11 +112,11 @@ public class YouTubeService {
                 videoRequest.setRequestHeaders(new com.google.api.client.http.HttpHeaders().setIfNoneMatch(videoEtag));
             }
 
-            VideoListResponse videoResponse = null;
+            VideoListResponse videoResponse;
             Video video;
-            boolean videoChanged = true;
 
             try {
+                quotaBudget.acquire(QuotaBudgetService.Endpoint.VIDEOS_LIST, QuotaBudgetService.Priority.INTERACTIVE);
                 videoResponse = videoRequest.execute();
                 if (videoResponse.getItems().isEmpty()) {
                     throw new IllegalArgumentException("Video not found: " + videoId);
@@ -90,81 +124,267 @@ public class YouTubeService {
                 video = videoResponse.getItems().get(0);
             } catch (GoogleJsonResponseException e) {
                 if (e.getStatusCode() == 304 && cachedVideo != null) {
-                    // Not modified, use cached data
-                    return cachedVideo.getData();
+                    // Not modified, the stored row is still current
+                    cacheService.recordNotModified();
+                    Optional<YoutubeVideo> stored = videoRepository.findById(videoId);
+                    if (stored.isPresent()) {
+                        return stored.get();
+                    }
+                    // Cached ETag without a stored row, fetch the full response again
+                    cacheService.evictVideo(videoId);
+                    return fetchVideoData(videoUrl);
                 } else {
                     throw e;
                 }
             }
 
             String channelId = video.getSnippet().getChannelId();
-            Channel channel = fetchChannelData(channelId);
-            String commentText = "";
+            ChannelStats channel = fetchChannelData(channelId);
+            YoutubeVideo previous = videoRepository.findById(videoId).orElse(null);
+            YoutubeVideo youtubeVideo = storeAndPublish(video, channel, videoUrl, previous,
+                videoResponse.getEtag(), QuotaBudgetService.Priority.INTERACTIVE);
 
-            try {
-                YouTube.CommentThreads.List commentRequest = youtubeService.commentThreads()
-                        .list(Collections.singletonList("snippet"))
-                        .setKey(apiKey)
-                        .setVideoId(videoId)
-                        .setMaxResults(1L)
-                        .setOrder("time");
-
-                CommentThreadListResponse commentResponse = commentRequest.execute();
-                if (!commentResponse.getItems().isEmpty()) {
-                    CommentThread commentThread = commentResponse.getItems().get(0);
-                    commentText = commentThread.getSnippet().getTopLevelComment().getSnippet().getTextDisplay();
+            // Start polling it in the background
+            pollingSchedule.track(youtubeVideo);
+
+            return youtubeVideo;
+
+        } catch (IOException e) {
+            logger.error("Error fetching YouTube data: ", e);
+            throw new RuntimeException("Failed to fetch YouTube data", e);
+        }
+    }
+
+    /**
+     * A video whose statistics and channel have been fetched in bulk and which
+     * only needs its comments looked up before it can be stored and published.
+     */
+    public static class PendingRefresh {
+        private final Video video;
+        private final ChannelStats channel;
+        private final YoutubeVideo previous;
+
+        public PendingRefresh(Video video, ChannelStats channel, YoutubeVideo previous) {
+            this.video = video;
+            this.channel = channel;
+            this.previous = previous;
+        }
+
+        public String getVideoId() {
+            return video.getId();
+        }
+
+        public Video getVideo() {
+            return video;
+        }
+
+        public ChannelStats getChannel() {
+            return channel;
+        }
+
+        public YoutubeVideo getPrevious() {
+            return previous;
+        }
+    }
+
+    /**
+     * Fetches statistics and snippets in chunks of {@value #MAX_IDS_PER_REQUEST}
+     * IDs per {@code videos.list} call and the distinct channel IDs in one
+     * {@code channels.list} call per chunk, so a refresh cycle costs roughly two
+     * requests per 50 videos instead of two per video. Comment threads cannot be
+     * batched and are fetched by {@link #completeRefresh(PendingRefresh)}.
+     * These calls are unconditional: an ETag only matches the exact same set
+     * of IDs, and the set of due videos is different every cycle.
+     */
+    public List<PendingRefresh> fetchRefreshBatch(Collection<YoutubeVideo> videos) {
+        Map<String, YoutubeVideo> previousById = new LinkedHashMap<>();
+        for (YoutubeVideo video : videos) {
+            previousById.put(video.getVideoId(), video);
+        }
+
+        try {
+            Map<String, Video> fetchedVideos = fetchVideos(new ArrayList<>(previousById.keySet()));
+
+            Set<String> channelIds = new LinkedHashSet<>();
+            for (Video video : fetchedVideos.values()) {
+                channelIds.add(video.getSnippet().getChannelId());
+            }
+            Map<String, ChannelStats> fetchedChannels = fetchChannels(new ArrayList<>(channelIds));
+
+            List<PendingRefresh> pending = new ArrayList<>(fetchedVideos.size());
+            for (Map.Entry<String, YoutubeVideo> entry : previousById.entrySet()) {
+                String videoId = entry.getKey();
+                Video video = fetchedVideos.get(videoId);
+                if (video == null) {
+                    logger.warn("Video {} was not returned by the YouTube API, skipping", videoId);
+                    continue;
                 }
-            } catch (GoogleJsonResponseException e) {
-                if (e.getStatusCode() == 403) {
-                    logger.info("Comments are disabled for video: {}", videoId);
-                    // Set comment count to 0 for videos with disabled comments
-                    video.getStatistics().setCommentCount(BigInteger.ZERO);
-                } else {
-                    throw e;
+                ChannelStats channel = fetchedChannels.get(video.getSnippet().getChannelId());
+                if (channel == null) {
+                    logger.warn("Channel {} for video {} was not returned by the YouTube API, skipping",
+                        video.getSnippet().getChannelId(), videoId);
+                    continue;
                 }
+                pending.add(new PendingRefresh(video, channel, entry.getValue()));
             }
+            return pending;
 
-            // Create new video object
-            YoutubeVideo youtubeVideo = new YoutubeVideo();
-            youtubeVideo.setVideoId(videoId);
-            youtubeVideo.setChannelName(video.getSnippet().getChannelTitle());
-            youtubeVideo.setTitle(video.getSnippet().getTitle());
-            youtubeVideo.setChannelId(channelId);
-            youtubeVideo.setCommentCount(convertBigIntegerToLong(video.getStatistics().getCommentCount()));
-            youtubeVideo.setLikeCount(convertBigIntegerToLong(video.getStatistics().getLikeCount()));
-            youtubeVideo.setViewCount(convertBigIntegerToLong(video.getStatistics().getViewCount()));
-            youtubeVideo.setPublishedAt(Instant.parse(video.getSnippet().getPublishedAt().toString()));
-            youtubeVideo.setVideoUrl(videoUrl);
-            youtubeVideo.setFetchedAt(Instant.now());
-            youtubeVideo.setCommentText(commentText);
-            
-            // Set channel statistics
-            youtubeVideo.setSubscriberCount(convertBigIntegerToLong(channel.getStatistics().getSubscriberCount()));
-            youtubeVideo.setVideoCount(convertBigIntegerToLong(channel.getStatistics().getVideoCount()));
+        } catch (IOException e) {
+            logger.error("Error fetching YouTube data: ", e);
+            throw new RuntimeException("Failed to fetch YouTube data", e);
+        }
+    }
+
+    /**
+     * Reads the new comments of a bulk-fetched video, then caches and stores it.
+     * Safe to call concurrently for different videos.
+     */
+    public YoutubeVideo completeRefresh(PendingRefresh pending) {
+        try {
+            // The item ETag is not the ETag of a single-video request, so none is cached
+            return storeAndPublish(pending.getVideo(), pending.getChannel(), pending.getPrevious().getVideoUrl(),
+                pending.getPrevious(), null, QuotaBudgetService.Priority.BACKGROUND);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to fetch YouTube data for video " + pending.getVideoId(), e);
+        }
+    }
 
-            // Cache video data
-            if (videoResponse != null) {
-                cacheService.cacheVideo(videoId, youtubeVideo, videoResponse.getEtag());
+    private Map<String, Video> fetchVideos(List<String> videoIds) throws IOException {
+        Map<String, Video> videos = new HashMap<>();
+        for (int from = 0; from < videoIds.size(); from += MAX_IDS_PER_REQUEST) {
+            List<String> chunk = videoIds.subList(from, Math.min(from + MAX_IDS_PER_REQUEST, videoIds.size()));
+            quotaBudget.acquire(QuotaBudgetService.Endpoint.VIDEOS_LIST, QuotaBudgetService.Priority.BACKGROUND);
+            VideoListResponse response = youtubeService.videos()
+                    .list(Collections.singletonList("statistics,snippet"))
+                    .setKey(apiKey)
+                    .setId(chunk)
+                    .setMaxResults((long) MAX_IDS_PER_REQUEST)
+                    .execute();
+            for (Video video : response.getItems()) {
+                videos.put(video.getId(), video);
+            }
+        }
+        return videos;
+    }
+
+    private Map<String, ChannelStats> fetchChannels(List<String> channelIds) throws IOException {
+        Map<String, ChannelStats> channels = new HashMap<>();
+        for (int from = 0; from < channelIds.size(); from += MAX_IDS_PER_REQUEST) {
+            List<String> chunk = channelIds.subList(from, Math.min(from + MAX_IDS_PER_REQUEST, channelIds.size()));
+            quotaBudget.acquire(QuotaBudgetService.Endpoint.CHANNELS_LIST, QuotaBudgetService.Priority.BACKGROUND);
+            ChannelListResponse response = youtubeService.channels()
+                    .list(Collections.singletonList("statistics"))
+                    .setKey(apiKey)
+                    .setId(chunk)
+                    .setMaxResults((long) MAX_IDS_PER_REQUEST)
+                    .execute();
+            for (Channel channel : response.getItems()) {
+                ChannelStats stats = ChannelStats.from(channel);
+                cacheService.updateChannelData(channel.getId(), stats);
+                channels.put(channel.getId(), stats);
             }
+        }
+        return channels;
+    }
 
-            // Save to database
-            videoRepository.save(youtubeVideo);
+    /**
+     * Stores the video and queues its records in the outbox in one
+     * transaction; {@link OutboxRelay} publishes them to Kafka later, so the
+     * caller never waits on the broker. {@code etag} is the ETag of the
+     * single-video response, or {@code null} when the video came from a batch.
+     */
+    private YoutubeVideo storeAndPublish(Video video, ChannelStats channel, String videoUrl, YoutubeVideo previous,
+                                         String etag, QuotaBudgetService.Priority priority) throws IOException {
+        String videoId = video.getId();
+        YoutubeVideo youtubeVideo = buildYoutubeVideo(video, channel, videoUrl);
 
-            // Send to Kafka immediately
-            logger.info("Sending video data to Kafka for immediate processing: {}", videoId);
-            kafkaProducerService.sendVideoData(youtubeVideo);
+        CommentIngestionService.IngestResult comments =
+            commentIngestion.ingest(videoId, previous, youtubeVideo.getCommentCount(), priority);
+        CommentIngestionService.NewComment newest = comments.getNewest();
+        if (comments.isCommentsDisabled()) {
+            // Set comment count to 0 for videos with disabled comments
+            youtubeVideo.setCommentCount(0L);
+            youtubeVideo.setCommentText("");
+        } else if (newest != null) {
+            youtubeVideo.setCommentText(newest.getText());
+            youtubeVideo.setLatestCommentId(newest.getCommentId());
+            youtubeVideo.setLatestCommentPublishedAt(newest.getPublishedAt());
+        } else if (previous != null) {
+            youtubeVideo.setCommentText(previous.getCommentText());
+            youtubeVideo.setLatestCommentId(previous.getLatestCommentId());
+            youtubeVideo.setLatestCommentPublishedAt(previous.getLatestCommentPublishedAt());
+        }
 
-            return youtubeVideo;
+        if (etag != null) {
+            cacheService.cacheVideo(videoId, youtubeVideo, etag);
+        } else {
+            cacheService.updateVideo(videoId, youtubeVideo);
+        }
 
-        } catch (IOException e) {
-            logger.error("Error fetching YouTube data: ", e);
-            throw new RuntimeException("Failed to fetch YouTube data", e);
+        // Publish exactly once per real change: a record per new comment, or a
+        // single record when only the statistics moved, and nothing otherwise
+        List<YoutubeVideo> records = new ArrayList<>();
+        if (!changeDetector.checkAndRecord(previous, youtubeVideo)) {
+            logger.debug("No changes for video {}, nothing to publish", videoId);
+        } else if (comments.getNewComments().isEmpty()) {
+            records.add(youtubeVideo);
+        } else {
+            // One record per new comment, oldest first, each carrying the current statistics
+            for (CommentIngestionService.NewComment comment : comments.getNewComments()) {
+                YoutubeVideo record = new YoutubeVideo(youtubeVideo);
+                record.setCommentText(comment.getText());
+                record.setLatestCommentId(comment.getCommentId());
+                record.setLatestCommentPublishedAt(comment.getPublishedAt());
+                records.add(record);
+            }
         }
+
+        List<OutboxEvent> events = new ArrayList<>(records.size());
+        for (YoutubeVideo record : records) {
+            String topic = kafkaProducerService.routeFor(record);
+            if (topic != null) {
+                events.add(OutboxEvent.record(topic, record));
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                videoRepository.save(youtubeVideo);
+                outboxRepository.saveAll(events);
+            });
+        } catch (RuntimeException e) {
+            // Nothing was published, compare the next refresh with the stored row again
+            changeDetector.forget(videoId);
+            throw e;
+        }
+        historyService.record(youtubeVideo);
+        return youtubeVideo;
+    }
+
+    private YoutubeVideo buildYoutubeVideo(Video video, ChannelStats channel, String videoUrl) {
+        // Create new video object
+        YoutubeVideo youtubeVideo = new YoutubeVideo();
+        youtubeVideo.setVideoId(video.getId());
+        youtubeVideo.setChannelName(video.getSnippet().getChannelTitle());
+        youtubeVideo.setTitle(video.getSnippet().getTitle());
+        youtubeVideo.setChannelId(video.getSnippet().getChannelId());
+        youtubeVideo.setCommentCount(convertBigIntegerToLong(video.getStatistics().getCommentCount()));
+        youtubeVideo.setLikeCount(convertBigIntegerToLong(video.getStatistics().getLikeCount()));
+        youtubeVideo.setViewCount(convertBigIntegerToLong(video.getStatistics().getViewCount()));
+        youtubeVideo.setPublishedAt(Instant.parse(video.getSnippet().getPublishedAt().toString()));
+        youtubeVideo.setVideoUrl(videoUrl);
+        youtubeVideo.setFetchedAt(Instant.now());
+        youtubeVideo.setCommentText("");
+
+        // Set channel statistics
+        youtubeVideo.setSubscriberCount(channel.getSubscriberCount());
+        youtubeVideo.setVideoCount(channel.getVideoCount());
+
+        return youtubeVideo;
     }
 
-    private Channel fetchChannelData(String channelId) throws IOException {
+    private ChannelStats fetchChannelData(String channelId) throws IOException {
         // Check channel cache
-        VideoCacheService.CacheEntry<Channel> cachedChannel = cacheService.getCachedChannel(channelId);
+        VideoCacheService.CacheEntry<ChannelStats> cachedChannel = cacheService.getCachedChannel(channelId);
         String channelEtag = cachedChannel != null ? cachedChannel.getEtag() : null;
 
         // Fetch channel details with ETag
@@ -178,11 +398,12 @@ public class YouTubeService {
         }
 
         try {
+            quotaBudget.acquire(QuotaBudgetService.Endpoint.CHANNELS_LIST, QuotaBudgetService.Priority.INTERACTIVE);
             ChannelListResponse channelResponse = channelRequest.execute();
             if (channelResponse.getItems().isEmpty()) {
                 throw new IllegalArgumentException("Channel not found: " + channelId);
             }
-            Channel channel = channelResponse.getItems().get(0);
+            ChannelStats channel = ChannelStats.from(channelResponse.getItems().get(0));
             
             // Cache channel data
             cacheService.cacheChannelData(channelId, channel, channelResponse.getEtag());
@@ -191,6 +412,7 @@ public class YouTubeService {
         } catch (GoogleJsonResponseException e) {
             if (e.getStatusCode() == 304 && cachedChannel != null) {
                 // Not modified, use cached data
+                cacheService.recordNotModified();
                 return cachedChannel.getData();
             } else {
                 throw e;
@@ -1,11 +1,25 @@
 package com.example.producer;
 
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class SpringProducerApplicationTests {
 
+	@TempDir
+	static Path dataDir;
+
+	// Keep the state file out of the working tree's data/ directory
+	@DynamicPropertySource
+	static void dataFiles(DynamicPropertyRegistry registry) {
+		registry.add("youtube.cache.snapshot-file", () -> dataDir.resolve("youtube-cache.snapshot").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
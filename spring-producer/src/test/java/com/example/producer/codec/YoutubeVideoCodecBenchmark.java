@@ -0,0 +1,141 @@
+package com.example.producer.codec;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * Compares the binary record format against the JSON serializer used today:
+ * bytes per record and serialize / deserialize time per record.
+ *
+ * Not a unit test (surefire only runs {@code *Test} classes); run it from the
+ * IDE or, from {@code spring-producer}, with
+ * {@code mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt}
+ * followed by
+ * {@code java -cp target/classes:target/test-classes:$(cat target/cp.txt) com.example.producer.codec.YoutubeVideoCodecBenchmark}.
+ * Before timing anything it checks that both formats round-trip every sample
+ * record, so a broken codec fails the run instead of printing fast numbers.
+ */
+public class YoutubeVideoCodecBenchmark {
+
+    private static final int RECORDS = 1_000;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        List<YoutubeVideo> videos = sampleVideos();
+
+        JsonSerializer<YoutubeVideo> jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(Map.of(JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        JsonDeserializer<YoutubeVideo> jsonDeserializer = new JsonDeserializer<>(YoutubeVideo.class, false);
+        YoutubeVideoSerializer binarySerializer = new YoutubeVideoSerializer();
+
+        List<byte[]> json = new ArrayList<>();
+        List<byte[]> binary = new ArrayList<>();
+        for (YoutubeVideo video : videos) {
+            json.add(jsonSerializer.serialize("youtube-video-state", video));
+            binary.add(binarySerializer.serialize("youtube-video-state", video));
+        }
+
+        for (int i = 0; i < videos.size(); i++) {
+            check(videos.get(i), jsonDeserializer.deserialize("youtube-video-state", json.get(i)), "json");
+            check(videos.get(i), YoutubeVideoCodec.decode(binary.get(i)), "binary");
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            serialize(videos, jsonSerializer::serialize);
+            serialize(videos, binarySerializer::serialize);
+            deserialize(json, jsonDeserializer::deserialize);
+            deserialize(binary, (topic, data) -> YoutubeVideoCodec.decode(data));
+        }
+
+        double jsonSer = 0;
+        double binarySer = 0;
+        double jsonDe = 0;
+        double binaryDe = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            jsonSer += serialize(videos, jsonSerializer::serialize);
+            binarySer += serialize(videos, binarySerializer::serialize);
+            jsonDe += deserialize(json, jsonDeserializer::deserialize);
+            binaryDe += deserialize(binary, (topic, data) -> YoutubeVideoCodec.decode(data));
+        }
+
+        System.out.printf("%-8s %14s %12s %12s%n", "format", "bytes/record", "ser ns", "de ns");
+        System.out.printf("%-8s %14.1f %12.0f %12.0f%n", "json",
+            averageSize(json), jsonSer / MEASURED_ROUNDS, jsonDe / MEASURED_ROUNDS);
+        System.out.printf("%-8s %14.1f %12.0f %12.0f%n", "binary",
+            averageSize(binary), binarySer / MEASURED_ROUNDS, binaryDe / MEASURED_ROUNDS);
+    }
+
+    private interface Encoder {
+        byte[] apply(String topic, YoutubeVideo video);
+    }
+
+    private interface Decoder {
+        YoutubeVideo apply(String topic, byte[] data);
+    }
+
+    /** Returns the average time per record in nanoseconds. */
+    private static double serialize(List<YoutubeVideo> videos, Encoder encoder) {
+        long start = System.nanoTime();
+        for (YoutubeVideo video : videos) {
+            sink = encoder.apply("youtube-video-state", video);
+        }
+        return (double) (System.nanoTime() - start) / videos.size();
+    }
+
+    private static double deserialize(List<byte[]> records, Decoder decoder) {
+        long start = System.nanoTime();
+        for (byte[] record : records) {
+            sink = decoder.apply("youtube-video-state", record);
+        }
+        return (double) (System.nanoTime() - start) / records.size();
+    }
+
+    private static void check(YoutubeVideo expected, YoutubeVideo actual, String format) {
+        if (!expected.getVideoId().equals(actual.getVideoId())
+                || !expected.getViewCount().equals(actual.getViewCount())
+                || !expected.getCommentText().equals(actual.getCommentText())
+                || !expected.getFetchedAt().equals(actual.getFetchedAt())) {
+            throw new IllegalStateException(format + " did not round-trip video " + expected.getVideoId());
+        }
+    }
+
+    private static double averageSize(List<byte[]> records) {
+        return records.stream().mapToInt(record -> record.length).average().orElse(0);
+    }
+
+    private static List<YoutubeVideo> sampleVideos() {
+        List<YoutubeVideo> videos = new ArrayList<>(RECORDS);
+        // Fixed, so every run encodes the same bytes
+        Instant now = Instant.parse("2026-10-17T12:00:00Z");
+        for (int i = 0; i < RECORDS; i++) {
+            YoutubeVideo video = new YoutubeVideo();
+            video.setVideoId(String.format("vid%08d", i));
+            video.setTitle("Sample video number " + i + " about Kafka streaming");
+            video.setChannelId("UC" + Integer.toHexString(i * 7919) + "channelxyz");
+            video.setChannelName("Channel " + (i % 50));
+            video.setViewCount(1_000L + i * 9_973L);
+            video.setLikeCount(10L + i * 97L);
+            video.setCommentCount((long) (i % 500));
+            video.setCommentText("Great video! ".repeat(1 + i % 5));
+            video.setPublishedAt(now.minusSeconds(86_400L * (i % 365)));
+            video.setVideoUrl("https://www.youtube.com/watch?v=" + video.getVideoId());
+            video.setFetchedAt(now);
+            video.setSubscriberCount(50_000L + i * 13L);
+            video.setVideoCount(100L + i % 300);
+            video.setLatestCommentId("Ugx" + i + "commentid");
+            video.setLatestCommentPublishedAt(now.minusSeconds(i));
+            videos.add(video);
+        }
+        return videos;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.producer.codec;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.example.producer.model.YoutubeVideo;
+
+/**
+ * The producer must write the records in {@code codec-fixtures/youtube-video.properties}
+ * byte for byte; the consumer's and the Telegram bot's tests decode the same records.
+ */
+class YoutubeVideoCodecTest {
+
+    private static Properties fixtures;
+
+    @BeforeAll
+    static void loadFixtures() throws IOException {
+        fixtures = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of("..", "codec-fixtures", "youtube-video.properties"))) {
+            fixtures.load(reader);
+        }
+    }
+
+    private static byte[] fixture(String name) {
+        return HexFormat.of().parseHex(fixtures.getProperty(name));
+    }
+
+    private static YoutubeVideo fullVideo() {
+        YoutubeVideo video = new YoutubeVideo();
+        video.setVideoId("dQw4w9WgXcQ");
+        video.setTitle("Never Gonna Give You Up");
+        video.setChannelId("UCuAXFkgsw1L7xaCfnd5JJOw");
+        video.setChannelName("Rick Astley");
+        video.setViewCount(1_500_000_000L);
+        video.setLikeCount(17_000_000L);
+        video.setCommentCount(2_300_000L);
+        video.setCommentText("Still a classic 🎵");
+        video.setPublishedAt(Instant.parse("2009-10-25T06:57:33Z"));
+        video.setVideoUrl("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        video.setFetchedAt(Instant.parse("2026-10-17T12:00:00Z"));
+        video.setSubscriberCount(4_200_000L);
+        video.setVideoCount(130L);
+        video.setLatestCommentId("UgzExampleComment");
+        video.setLatestCommentPublishedAt(Instant.parse("2026-10-17T11:59:00Z"));
+        return video;
+    }
+
+    @Test
+    void encodesEveryFieldAsInTheSharedFixture() {
+        assertArrayEquals(fixture("full"), YoutubeVideoCodec.encode(fullVideo()));
+    }
+
+    @Test
+    void omitsNullFields() {
+        YoutubeVideo video = new YoutubeVideo();
+        video.setVideoId("dQw4w9WgXcQ");
+        video.setViewCount(0L);
+
+        assertArrayEquals(fixture("sparse"), YoutubeVideoCodec.encode(video));
+    }
+
+    @Test
+    void decodesWhatItEncodes() {
+        YoutubeVideo expected = fullVideo();
+        YoutubeVideo decoded = YoutubeVideoCodec.decode(fixture("full"));
+
+        assertEquals(expected.getVideoId(), decoded.getVideoId());
+        assertEquals(expected.getTitle(), decoded.getTitle());
+        assertEquals(expected.getChannelId(), decoded.getChannelId());
+        assertEquals(expected.getChannelName(), decoded.getChannelName());
+        assertEquals(expected.getViewCount(), decoded.getViewCount());
+        assertEquals(expected.getLikeCount(), decoded.getLikeCount());
+        assertEquals(expected.getCommentCount(), decoded.getCommentCount());
+        assertEquals(expected.getCommentText(), decoded.getCommentText());
+        assertEquals(expected.getPublishedAt(), decoded.getPublishedAt());
+        assertEquals(expected.getVideoUrl(), decoded.getVideoUrl());
+        assertEquals(expected.getFetchedAt(), decoded.getFetchedAt());
+        assertEquals(expected.getSubscriberCount(), decoded.getSubscriberCount());
+        assertEquals(expected.getVideoCount(), decoded.getVideoCount());
+        assertEquals(expected.getLatestCommentId(), decoded.getLatestCommentId());
+        assertEquals(expected.getLatestCommentPublishedAt(), decoded.getLatestCommentPublishedAt());
+    }
+
+    @Test
+    void skipsUnknownFields() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(fixture("sparse"));
+        WireFormat.writeLongField(out, 90, 42L);
+        WireFormat.writeStringField(out, 91, "from a newer producer");
+
+        YoutubeVideo decoded = YoutubeVideoCodec.decode(out.toByteArray());
+
+        assertEquals("dQw4w9WgXcQ", decoded.getVideoId());
+        assertEquals(0L, decoded.getViewCount());
+        assertNull(decoded.getTitle());
+    }
+
+    @Test
+    void rejectsNewerVersions() {
+        byte[] data = fixture("sparse");
+        data[1] = (byte) (WireFormat.VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> YoutubeVideoCodec.decode(data));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.telegrambot.codec;
+
+import java.util.Map;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import com.example.telegrambot.model.YoutubeVideo;
+
+/**
+ * Kafka deserializer that accepts both the compact binary records and the
+ * JSON records written by older producers, telling them apart by the first
+ * byte. This lets the producer switch formats without draining the topics.
+ */
+public class YoutubeVideoDeserializer implements Deserializer<YoutubeVideo> {
+
+    private final JsonDeserializer<YoutubeVideo> jsonDeserializer = new JsonDeserializer<>(YoutubeVideo.class, false);
+
+    public YoutubeVideoDeserializer() {
+        jsonDeserializer.addTrustedPackages("com.example.telegrambot.model");
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        // The JSON fallback is fully set up in the constructor
+    }
+
+    @Override
+    public YoutubeVideo deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (WireFormat.isBinary(data)) {
+            return YoutubeVideoCodec.decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
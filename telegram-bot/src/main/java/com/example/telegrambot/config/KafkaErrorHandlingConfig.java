@@ -0,0 +1,58 @@
+package com.example.telegrambot.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import com.example.telegrambot.model.YoutubeVideo;
+
+/**
+ * Failed records of the notification listener are retried with exponential
+ * backoff, then published to the dead-letter topic. Records that cannot be
+ * deserialized or are invalid go there straight away; their raw bytes are
+ * kept as they were read.
+ */
+@Configuration
+public class KafkaErrorHandlingConfig {
+
+    @Value("${kafka.topic.youtube-comments-dlt}")
+    private String deadLetterTopic;
+
+    @Bean
+    public KafkaTemplate<String, Object> deadLetterTemplate(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(YoutubeVideo.class, new JsonSerializer<YoutubeVideo>().noTypeInfo());
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(null),
+            new StringSerializer(), new DelegatingByTypeSerializer(serializers)));
+    }
+
+    @Bean
+    public DefaultErrorHandler kafkaErrorHandler(KafkaTemplate<String, Object> deadLetterTemplate,
+                                                 @Value("${kafka.retry.initial-interval:1000}") long initialInterval,
+                                                 @Value("${kafka.retry.max-elapsed-time:60000}") long maxElapsedTime) {
+        // Any partition of the dead-letter topic will do
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(deadLetterTemplate,
+            (record, exception) -> new TopicPartition(deadLetterTopic, -1));
+        ExponentialBackOff backOff = new ExponentialBackOff(initialInterval, 2.0);
+        backOff.setMaxElapsedTime(maxElapsedTime);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, backOff);
+        errorHandler.addNotRetryableExceptions(IllegalArgumentException.class);
+        return errorHandler;
+    }
+}
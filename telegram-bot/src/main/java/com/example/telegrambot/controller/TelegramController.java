@@ -0,0 +1,26 @@
+package com.example.telegrambot.controller;
+
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.telegrambot.service.TelegramSendQueue;
+
+@RestController
+@RequestMapping("/api/telegram")
+public class TelegramController {
+
+    private final TelegramSendQueue sendQueue;
+
+    public TelegramController(TelegramSendQueue sendQueue) {
+        this.sendQueue = sendQueue;
+    }
+
+    @GetMapping("/queue/stats")
+    public ResponseEntity<Map<String, Object>> getQueueStats() {
+        return ResponseEntity.ok(sendQueue.getStats());
+    }
+}
@@ -1,61 +1,80 @@
 package com.example.telegrambot.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
 import com.example.telegrambot.model.YoutubeVideo;
+import org.apache.commons.logging.LogFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Service;
 
 @Service
 public class KafkaConsumerService {
 
+    /** Id of the listener container, used by the send queue to pause it. */
+    public static final String LISTENER_ID = "telegram-notifications";
+
     private static final Logger logger = LoggerFactory.getLogger(KafkaConsumerService.class);
-    private final YouTubeTelegramBot telegramBot;
+    private static final LogAccessor headerLogger = new LogAccessor(LogFactory.getLog(KafkaConsumerService.class));
+    private final TelegramSendQueue sendQueue;
 
-    public KafkaConsumerService(YouTubeTelegramBot telegramBot) {
-        this.telegramBot = telegramBot;
+    public KafkaConsumerService(TelegramSendQueue sendQueue) {
+        this.sendQueue = sendQueue;
     }
 
-    @KafkaListener(topics = "${kafka.topic.youtube-comments}", groupId = "${spring.kafka.consumer.group-id}")
-    public void consume(YoutubeVideo video) {
-        try {
-            logger.info("Received video data from Kafka for video ID: {} ({})", video.getVideoId(), video.getTitle());
-            
+    /**
+     * Hands each update of a poll to the send queue, which rate-limits and
+     * coalesces the Telegram messages on its own thread, so this never waits
+     * on Telegram. The queue is saved before returning, because the container
+     * commits the offsets as soon as this returns: a crash can then no longer
+     * lose an update that was read but not yet saved.
+     *
+     * A record that cannot be read or has no video ID fails the batch at its
+     * index. The updates before it are saved first, so the container's error
+     * handler can commit up to it and move it to the dead-letter topic. If
+     * the queue cannot be saved the whole poll is redelivered, and updates of
+     * it that are still pending may then show their comments twice.
+     */
+    @KafkaListener(id = LISTENER_ID, topics = "${kafka.topic.youtube-comments}",
+            groupId = "${spring.kafka.consumer.group-id}", batch = "true")
+    public void consume(List<ConsumerRecord<String, YoutubeVideo>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, YoutubeVideo> record = records.get(i);
+            YoutubeVideo video = record.value();
+            if (video == null || video.getVideoId() == null) {
+                persist();
+                DeserializationException error = SerializationUtils.getExceptionFromHeader(record,
+                    SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, headerLogger);
+                if (error != null) {
+                    throw new BatchListenerFailedException("Unreadable Telegram update", error, i);
+                }
+                throw new BatchListenerFailedException("Invalid Telegram update",
+                    new IllegalArgumentException("Received Telegram update without a video ID"), i);
+            }
             // Since this topic is specifically for Telegram messages, we don't need to check comment length
             if (video.getCommentText() != null && !video.getCommentText().trim().isEmpty()) {
-                logger.info("Processing video with comment for Telegram notification: {}", video.getTitle());
-                
-                String message = String.format("""
-                    🎥 New YouTube Video Update!
-                    
-                    Title: %s
-                    Channel: %s
-                    Comment: %s
-                    
-                    Stats:
-                    👁️ Views: %d
-                    👍 Likes: %d
-                    💬 Comments: %d
-                    
-                    URL: %s
-                    """,
-                    video.getTitle(),
-                    video.getChannelName(),
-                    video.getCommentText(),
-                    video.getViewCount(),
-                    video.getLikeCount(),
-                    video.getCommentCount(),
-                    video.getVideoUrl()
-                );
-                
-                telegramBot.sendMessage(message);
-                logger.info("Successfully sent Telegram notification for video: {}", video.getVideoId());
+                logger.debug("Queueing Telegram notification for video: {}", video.getVideoId());
+                sendQueue.enqueue(video);
             } else {
                 logger.warn("Received video without comment text in Telegram topic: {}", video.getVideoId());
             }
-        } catch (Exception e) {
-            logger.error("Error processing video data for Telegram: ", e);
-            logger.debug("Full error details: ", e);
+        }
+        persist();
+    }
+
+    private void persist() {
+        try {
+            sendQueue.persist();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save the Telegram queue", e);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,675 @@
+package com.example.telegrambot.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import com.example.telegrambot.model.YoutubeVideo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Outbound Telegram messages, sent by a single background thread so that
+ * callers never wait on the network.
+ *
+ * Pending updates are kept per chat and per video: a new update to a video
+ * that is still waiting is merged into it (latest statistics, its comments
+ * appended), so memory is bounded by the number of distinct videos, capped
+ * at {@code telegram.queue.max-pending} by moving the oldest update to the
+ * dead-letter topic. A
+ * message needs a token from both the global and the chat's token bucket;
+ * when several updates are waiting for a chat, they go out together as one
+ * digest. Chats take turns, so a busy chat cannot starve the others.
+ *
+ * A failed delivery is put back at the front of its chat and every chat
+ * waits: for Telegram's {@code retry_after} when it sends one, otherwise
+ * with exponential backoff. Only errors Telegram will never accept (other
+ * 4xx responses) move the updates to the dead-letter topic, so an outage
+ * only delays delivery. While the queue is above its high-water mark the
+ * Kafka listener is paused instead of updates being dropped. The queue,
+ * including the message in flight and the retry state, is saved to a file
+ * so a restart resumes where it stopped: the listener saves it before its
+ * offsets are committed, and delivery progress is saved periodically.
+ */
+@Service
+public class TelegramSendQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(TelegramSendQueue.class);
+
+    private final YouTubeTelegramBot telegramBot;
+    private final KafkaTemplate<String, Object> deadLetterTemplate;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // Held for a whole save, so a save never reports success for a snapshot still being written
+    private final ReentrantLock saveLock = new ReentrantLock();
+    // Insertion order is the turn order; a chat moves to the back once served
+    private final LinkedHashMap<String, ChatQueue> chats = new LinkedHashMap<>();
+    private final TokenBucket globalBucket;
+    private int pendingCount;
+    // The batch being sent, kept in snapshots until it is delivered
+    private String inFlightChatId;
+    private List<PendingUpdate> inFlight;
+    private int consecutiveFailures;
+    private long retryAtMillis;
+    private boolean listenerPaused;
+    private volatile boolean dirty;
+    private volatile boolean running;
+    private Thread sender;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong deadLetteredCount = new AtomicLong();
+
+    @Value("${telegram.chat.id}")
+    private String defaultChatId;
+
+    @Value("${telegram.queue.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${telegram.queue.pause-threshold:800}")
+    private int pauseThreshold;
+
+    @Value("${telegram.queue.state-file:data/telegram-queue.json}")
+    private String stateFile;
+
+    @Value("${telegram.retry.initial-backoff:1000}")
+    private long initialBackoffMillis;
+
+    @Value("${telegram.retry.max-backoff:60000}")
+    private long maxBackoffMillis;
+
+    @Value("${kafka.topic.youtube-comments-dlt}")
+    private String deadLetterTopic;
+
+    @Value("${telegram.queue.dead-letter-timeout:10000}")
+    private long deadLetterTimeoutMillis;
+
+    @Value("${telegram.queue.digest-max-items:10}")
+    private int digestMaxItems;
+
+    @Value("${telegram.queue.max-comments-per-video:3}")
+    private int maxCommentsPerVideo;
+
+    @Value("${telegram.rate.chat-per-second:1}")
+    private double chatRate;
+
+    @Value("${telegram.rate.chat-burst:1}")
+    private double chatBurst;
+
+    public TelegramSendQueue(YouTubeTelegramBot telegramBot, KafkaTemplate<String, Object> deadLetterTemplate,
+                             KafkaListenerEndpointRegistry listenerRegistry, ObjectMapper objectMapper,
+                             @Value("${telegram.rate.global-per-second:30}") double globalRate) {
+        this.telegramBot = telegramBot;
+        this.deadLetterTemplate = deadLetterTemplate;
+        this.listenerRegistry = listenerRegistry;
+        this.objectMapper = objectMapper;
+        this.globalBucket = new TokenBucket(globalRate, globalRate);
+    }
+
+    /** Updates of one video waiting to be sent, merged into one entry. */
+    static class PendingUpdate {
+        private YoutubeVideo video;
+        private final Deque<String> comments = new ArrayDeque<>();
+        private int skippedComments;
+        private int updates;
+
+        private void merge(YoutubeVideo update, int maxComments) {
+            video = update;
+            updates++;
+            if (update.getCommentText() != null && !update.getCommentText().isBlank()) {
+                comments.addLast(update.getCommentText());
+                // Keep the newest comments; the rest are only counted
+                if (comments.size() > maxComments) {
+                    comments.removeFirst();
+                    skippedComments++;
+                }
+            }
+        }
+
+        /** Merges a newer pending update of the same video into this one. */
+        private void absorb(PendingUpdate newer, int maxComments) {
+            video = newer.video;
+            updates += newer.updates;
+            skippedComments += newer.skippedComments;
+            for (String comment : newer.comments) {
+                comments.addLast(comment);
+                if (comments.size() > maxComments) {
+                    comments.removeFirst();
+                    skippedComments++;
+                }
+            }
+        }
+
+        YoutubeVideo getVideo() { return video; }
+        Deque<String> getComments() { return comments; }
+        int getSkippedComments() { return skippedComments; }
+        int getUpdates() { return updates; }
+    }
+
+    /** The saved state of the queue. */
+    public static class Snapshot {
+        private int consecutiveFailures;
+        private long retryAtMillis;
+        private List<SnapshotEntry> entries = new ArrayList<>();
+
+        public int getConsecutiveFailures() { return consecutiveFailures; }
+        public void setConsecutiveFailures(int consecutiveFailures) { this.consecutiveFailures = consecutiveFailures; }
+
+        public long getRetryAtMillis() { return retryAtMillis; }
+        public void setRetryAtMillis(long retryAtMillis) { this.retryAtMillis = retryAtMillis; }
+
+        public List<SnapshotEntry> getEntries() { return entries; }
+        public void setEntries(List<SnapshotEntry> entries) { this.entries = entries; }
+    }
+
+    /** One pending update in a {@link Snapshot}, in sending order. */
+    public static class SnapshotEntry {
+        private String chatId;
+        private YoutubeVideo video;
+        private List<String> comments = new ArrayList<>();
+        private int skippedComments;
+        private int updates;
+
+        public SnapshotEntry() {}
+
+        private SnapshotEntry(String chatId, PendingUpdate update) {
+            this.chatId = chatId;
+            this.video = update.video;
+            this.comments = new ArrayList<>(update.comments);
+            this.skippedComments = update.skippedComments;
+            this.updates = update.updates;
+        }
+
+        private PendingUpdate toPendingUpdate() {
+            PendingUpdate update = new PendingUpdate();
+            update.video = video;
+            update.comments.addAll(comments);
+            update.skippedComments = skippedComments;
+            update.updates = updates;
+            return update;
+        }
+
+        public String getChatId() { return chatId; }
+        public void setChatId(String chatId) { this.chatId = chatId; }
+
+        public YoutubeVideo getVideo() { return video; }
+        public void setVideo(YoutubeVideo video) { this.video = video; }
+
+        public List<String> getComments() { return comments; }
+        public void setComments(List<String> comments) { this.comments = comments; }
+
+        public int getSkippedComments() { return skippedComments; }
+        public void setSkippedComments(int skippedComments) { this.skippedComments = skippedComments; }
+
+        public int getUpdates() { return updates; }
+        public void setUpdates(int updates) { this.updates = updates; }
+    }
+
+    private class ChatQueue {
+        private final LinkedHashMap<String, PendingUpdate> updates = new LinkedHashMap<>();
+        private final TokenBucket bucket = new TokenBucket(chatRate, chatBurst);
+    }
+
+    @PostConstruct
+    public void start() {
+        restore();
+        running = true;
+        sender = new Thread(this::run, "telegram-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Pauses the listener right away if the restored queue is already above
+     * the high-water mark. The listener containers only exist once every
+     * bean is created, so this cannot happen in {@link #start()}.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void pauseIfBacklogged() {
+        lock.lock();
+        try {
+            if (pendingCount >= pauseThreshold && !listenerPaused) {
+                setListenerPaused(true);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        sender.interrupt();
+        sender.join(TimeUnit.SECONDS.toMillis(5));
+        save();
+    }
+
+    /** Queues an update for the configured chat; never blocks on Telegram. */
+    public void enqueue(YoutubeVideo video) {
+        enqueue(defaultChatId, video);
+    }
+
+    public void enqueue(String chatId, YoutubeVideo video) {
+        Map.Entry<String, PendingUpdate> dropped = null;
+        lock.lock();
+        try {
+            enqueuedCount.incrementAndGet();
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue());
+            PendingUpdate update = chat.updates.get(video.getVideoId());
+            if (update != null) {
+                coalescedCount.incrementAndGet();
+            } else {
+                if (pendingCount >= maxPending) {
+                    dropped = removeOldest();
+                }
+                update = new PendingUpdate();
+                chat.updates.put(video.getVideoId(), update);
+                pendingCount++;
+            }
+            update.merge(video, maxCommentsPerVideo);
+            if (pendingCount >= pauseThreshold && !listenerPaused) {
+                setListenerPaused(true);
+            }
+            dirty = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (dropped != null) {
+            String droppedVideoId = dropped.getValue().getVideo().getVideoId();
+            if (deadLetter(List.of(dropped.getValue())).isEmpty()) {
+                droppedCount.incrementAndGet();
+                logger.warn("Telegram queue full, moved pending update for video {} to {}",
+                    droppedVideoId, deadLetterTopic);
+            } else {
+                // Over the cap is better than losing the update
+                requeue(dropped.getKey(), List.of(dropped.getValue()));
+                logger.error("Telegram queue full and {} unavailable, keeping update for video {}",
+                    deadLetterTopic, droppedVideoId);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.lock();
+        try {
+            return Map.of(
+                "pending", pendingCount,
+                "enqueued", enqueuedCount.get(),
+                "coalesced", coalescedCount.get(),
+                "dropped", droppedCount.get(),
+                "sent", sentCount.get(),
+                "failed", failedCount.get(),
+                "deadLettered", deadLetteredCount.get(),
+                "consecutiveFailures", consecutiveFailures,
+                "listenerPaused", listenerPaused);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest update of the chat with the most pending updates;
+     * the caller publishes it to the dead-letter topic outside the lock.
+     */
+    private Map.Entry<String, PendingUpdate> removeOldest() {
+        Map.Entry<String, ChatQueue> largest = null;
+        for (Map.Entry<String, ChatQueue> chat : chats.entrySet()) {
+            if (largest == null || chat.getValue().updates.size() > largest.getValue().updates.size()) {
+                largest = chat;
+            }
+        }
+        Iterator<PendingUpdate> oldest = largest.getValue().updates.values().iterator();
+        PendingUpdate dropped = oldest.next();
+        oldest.remove();
+        pendingCount--;
+        return Map.entry(largest.getKey(), dropped);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Map.Entry<String, List<PendingUpdate>> batch = next();
+                deliver(batch.getKey(), batch.getValue());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error in Telegram sender: ", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the retry delay is over and some chat has pending updates
+     * and tokens in both buckets, then takes up to {@code digestMaxItems} of
+     * its oldest updates.
+     */
+    private Map.Entry<String, List<PendingUpdate>> next() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                long retryDelay = TimeUnit.MILLISECONDS.toNanos(retryAtMillis - System.currentTimeMillis());
+                if (retryDelay > 0 && pendingCount > 0) {
+                    changed.awaitNanos(retryDelay);
+                    continue;
+                }
+                long wait = Long.MAX_VALUE;
+                for (Map.Entry<String, ChatQueue> entry : chats.entrySet()) {
+                    ChatQueue chat = entry.getValue();
+                    if (chat.updates.isEmpty()) {
+                        continue;
+                    }
+                    long delay = Math.max(chat.bucket.nanosUntilAvailable(now), globalBucket.nanosUntilAvailable(now));
+                    if (delay > 0) {
+                        wait = Math.min(wait, delay);
+                        continue;
+                    }
+                    chat.bucket.take(now);
+                    globalBucket.take(now);
+
+                    List<PendingUpdate> batch = new ArrayList<>(Math.min(chat.updates.size(), digestMaxItems));
+                    Iterator<PendingUpdate> oldest = chat.updates.values().iterator();
+                    while (batch.size() < digestMaxItems && oldest.hasNext()) {
+                        batch.add(oldest.next());
+                        oldest.remove();
+                    }
+                    pendingCount -= batch.size();
+                    String chatId = entry.getKey();
+                    chats.remove(chatId);
+                    chats.put(chatId, chat);
+                    inFlightChatId = chatId;
+                    inFlight = batch;
+                    if (listenerPaused && pendingCount <= pauseThreshold / 2) {
+                        setListenerPaused(false);
+                    }
+                    return Map.entry(chatId, batch);
+                }
+                if (wait == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(wait);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deliver(String chatId, List<PendingUpdate> batch) {
+        String text = batch.size() == 1 && batch.get(0).getUpdates() == 1
+            ? VideoUpdateMessages.single(batch.get(0).getVideo())
+            : VideoUpdateMessages.digest(batch);
+        try {
+            telegramBot.sendMessage(chatId, text);
+            sentCount.incrementAndGet();
+            if (batch.size() > 1 || batch.get(0).getUpdates() > 1) {
+                logger.info("Sent digest of {} video updates to chat {}", batch.size(), chatId);
+            }
+            finishDelivery(true);
+        } catch (TelegramApiException e) {
+            failedCount.incrementAndGet();
+            TelegramApiRequestException requestError = e instanceof TelegramApiRequestException
+                ? (TelegramApiRequestException) e : null;
+            Integer errorCode = requestError != null ? requestError.getErrorCode() : null;
+            if (errorCode != null && errorCode >= 400 && errorCode < 500 && errorCode != 429) {
+                // Telegram will never accept this message, retrying cannot help
+                logger.error("Telegram rejected message to chat {} ({}), moving {} updates to {}",
+                    chatId, e.getMessage(), batch.size(), deadLetterTopic);
+                List<PendingUpdate> unpublished = deadLetter(batch);
+                if (unpublished.isEmpty()) {
+                    finishDelivery(false);
+                } else {
+                    // Kept until the dead-letter topic takes them, going through Telegram again meanwhile
+                    retryLater(chatId, unpublished, null, e);
+                }
+            } else {
+                retryLater(chatId, batch, requestError, e);
+            }
+        } catch (RuntimeException e) {
+            // A bug or an unexpected client error; keep the batch rather than lose it
+            failedCount.incrementAndGet();
+            retryLater(chatId, batch, null, e);
+        }
+    }
+
+    private void finishDelivery(boolean delivered) {
+        lock.lock();
+        try {
+            inFlightChatId = null;
+            inFlight = null;
+            if (delivered) {
+                consecutiveFailures = 0;
+            }
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts a failed batch back at the front of its chat and holds every chat
+     * back.
+     */
+    private void retryLater(String chatId, List<PendingUpdate> batch, TelegramApiRequestException requestError,
+                            Exception error) {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            Integer retryAfter = requestError != null && requestError.getParameters() != null
+                ? requestError.getParameters().getRetryAfter() : null;
+            long delay = retryAfter != null
+                ? TimeUnit.SECONDS.toMillis(retryAfter)
+                : Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(consecutiveFailures - 1, 20));
+            retryAtMillis = System.currentTimeMillis() + delay;
+
+            requeue(chatId, batch);
+            inFlightChatId = null;
+            inFlight = null;
+            dirty = true;
+            logger.warn("Telegram delivery to chat {} failed (attempt {}), retrying in {} ms: {}",
+                chatId, consecutiveFailures, delay, error.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts updates back at the front of their chat, merging any newer updates
+     * of the same videos into them.
+     */
+    private void requeue(String chatId, List<PendingUpdate> batch) {
+        lock.lock();
+        try {
+            ChatQueue chat = chats.computeIfAbsent(chatId, id -> new ChatQueue());
+            LinkedHashMap<String, PendingUpdate> requeued = new LinkedHashMap<>();
+            for (PendingUpdate update : batch) {
+                requeued.put(update.getVideo().getVideoId(), update);
+            }
+            for (Map.Entry<String, PendingUpdate> newer : chat.updates.entrySet()) {
+                PendingUpdate older = requeued.get(newer.getKey());
+                if (older != null) {
+                    older.absorb(newer.getValue(), maxCommentsPerVideo);
+                    pendingCount--;
+                } else {
+                    requeued.put(newer.getKey(), newer.getValue());
+                }
+            }
+            chat.updates.clear();
+            chat.updates.putAll(requeued);
+            pendingCount += batch.size();
+            dirty = true;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the updates to the dead-letter topic, waiting for each write,
+     * and returns the ones that could not be published.
+     */
+    private List<PendingUpdate> deadLetter(List<PendingUpdate> batch) {
+        List<PendingUpdate> unpublished = new ArrayList<>();
+        for (PendingUpdate update : batch) {
+            String videoId = update.getVideo().getVideoId();
+            try {
+                deadLetterTemplate.send(deadLetterTopic, videoId, update.getVideo())
+                    .get(deadLetterTimeoutMillis, TimeUnit.MILLISECONDS);
+                deadLetteredCount.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unpublished.add(update);
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                logger.error("Failed to publish update for video {} to {}: {}", videoId, deadLetterTopic,
+                    e.getMessage());
+                unpublished.add(update);
+            }
+        }
+        return unpublished;
+    }
+
+    private void setListenerPaused(boolean paused) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(KafkaConsumerService.LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+        if (paused) {
+            container.pause();
+            logger.warn("Telegram queue holds {} updates, pausing the Kafka listener", pendingCount);
+        } else {
+            container.resume();
+            logger.info("Telegram queue down to {} updates, resuming the Kafka listener", pendingCount);
+        }
+        listenerPaused = paused;
+    }
+
+    /** Writes the queue to the state file if it changed since the last save. */
+    @Scheduled(fixedDelayString = "${telegram.queue.snapshot-interval:1000}")
+    public void save() {
+        try {
+            persist();
+        } catch (IOException e) {
+            logger.error("Failed to save Telegram queue to {}: ", stateFile, e);
+        }
+    }
+
+    /**
+     * Writes the queue to the state file if it changed since the last save,
+     * and returns once everything queued so far is on disk.
+     *
+     * @throws IOException if the file could not be written
+     */
+    public void persist() throws IOException {
+        saveLock.lock();
+        try {
+            if (dirty) {
+                write();
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    private void write() throws IOException {
+        Snapshot snapshot = new Snapshot();
+        lock.lock();
+        try {
+            dirty = false;
+            snapshot.setConsecutiveFailures(consecutiveFailures);
+            snapshot.setRetryAtMillis(retryAtMillis);
+            if (inFlight != null) {
+                for (PendingUpdate update : inFlight) {
+                    snapshot.getEntries().add(new SnapshotEntry(inFlightChatId, update));
+                }
+            }
+            for (Map.Entry<String, ChatQueue> chat : chats.entrySet()) {
+                for (PendingUpdate update : chat.getValue().updates.values()) {
+                    snapshot.getEntries().add(new SnapshotEntry(chat.getKey(), update));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Path file = Paths.get(stateFile);
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            objectMapper.writeValue(tempFile.toFile(), snapshot);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            throw e;
+        }
+    }
+
+    void restore() {
+        Path file = Paths.get(stateFile);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            Snapshot snapshot = objectMapper.readValue(file.toFile(), Snapshot.class);
+            lock.lock();
+            try {
+                consecutiveFailures = snapshot.getConsecutiveFailures();
+                retryAtMillis = snapshot.getRetryAtMillis();
+                for (SnapshotEntry entry : snapshot.getEntries()) {
+                    PendingUpdate update = entry.toPendingUpdate();
+                    ChatQueue chat = chats.computeIfAbsent(entry.getChatId(), id -> new ChatQueue());
+                    PendingUpdate existing = chat.updates.get(update.getVideo().getVideoId());
+                    if (existing != null) {
+                        existing.absorb(update, maxCommentsPerVideo);
+                    } else {
+                        chat.updates.put(update.getVideo().getVideoId(), update);
+                        pendingCount++;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            logger.info("Restored {} pending Telegram updates from {}", pendingCount, file);
+        } catch (IOException e) {
+            logger.error("Failed to restore Telegram queue from {}, starting empty: ", file, e);
+        }
+    }
+}
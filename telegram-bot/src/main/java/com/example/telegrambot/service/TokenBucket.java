@@ -0,0 +1,39 @@
+package com.example.telegrambot.service;
+
+/**
+ * A token bucket: {@code ratePerSecond} tokens are added per second, up to
+ * {@code capacity}, and each message takes one. Not thread-safe; callers
+ * hold their own lock.
+ */
+class TokenBucket {
+
+    private final double nanosPerToken;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double ratePerSecond, double capacity) {
+        this.nanosPerToken = 1_000_000_000.0 / ratePerSecond;
+        this.capacity = Math.max(1, capacity);
+        this.tokens = this.capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /** Nanoseconds until a token is available, {@code 0} if one is now. */
+    long nanosUntilAvailable(long now) {
+        refill(now);
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) * nanosPerToken);
+    }
+
+    void take(long now) {
+        refill(now);
+        tokens -= 1;
+    }
+
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) / nanosPerToken);
+            refilledAt = now;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.telegrambot.service;
+
+import java.util.List;
+
+import com.example.telegrambot.model.YoutubeVideo;
+
+/**
+ * Texts of the Telegram notifications: one message for a single update, or
+ * one digest for several pending updates, cut to Telegram's length limit.
+ */
+final class VideoUpdateMessages {
+
+    // Telegram rejects longer message texts
+    static final int MAX_LENGTH = 4096;
+
+    private VideoUpdateMessages() {
+    }
+
+    static String single(YoutubeVideo video) {
+        return truncate(String.format("""
+            🎥 New YouTube Video Update!
+            
+            Title: %s
+            Channel: %s
+            Comment: %s
+            
+            Stats:
+            👁️ Views: %d
+            👍 Likes: %d
+            💬 Comments: %d
+            
+            URL: %s
+            """,
+            video.getTitle(),
+            video.getChannelName(),
+            video.getCommentText(),
+            video.getViewCount(),
+            video.getLikeCount(),
+            video.getCommentCount(),
+            video.getVideoUrl()
+        ));
+    }
+
+    /** One block per video with its latest statistics and new comments. */
+    static String digest(List<TelegramSendQueue.PendingUpdate> updates) {
+        StringBuilder text = new StringBuilder();
+        text.append("📬 ").append(updates.size()).append(updates.size() == 1 ? " video update" : " video updates")
+            .append('\n');
+        for (TelegramSendQueue.PendingUpdate update : updates) {
+            YoutubeVideo video = update.getVideo();
+            text.append("\n🎥 ").append(video.getTitle())
+                .append("\nChannel: ").append(video.getChannelName());
+            for (String comment : update.getComments()) {
+                text.append("\n💬 ").append(comment);
+            }
+            if (update.getSkippedComments() > 0) {
+                text.append("\n… and ").append(update.getSkippedComments()).append(" more comments");
+            }
+            text.append(String.format("%n👁️ %d  👍 %d  💬 %d%n", video.getViewCount(), video.getLikeCount(),
+                video.getCommentCount()));
+            text.append(video.getVideoUrl()).append('\n');
+        }
+        return truncate(text.toString());
+    }
+
+    private static String truncate(String text) {
+        return text.length() <= MAX_LENGTH ? text : text.substring(0, MAX_LENGTH - 1) + "…";
+    }
+}
@@ -45,16 +45,24 @@ public class YouTubeTelegramBot extends TelegramLongPollingBot {
 
     public void sendMessage(String message) {
         try {
-            SendMessage sendMessage = new SendMessage();
-            sendMessage.setChatId(chatId);
-            sendMessage.setText(message);
-            execute(sendMessage);
-            logger.info("Message sent successfully: {}", message);
+            sendMessage(chatId, message);
         } catch (TelegramApiException e) {
             logger.error("Error sending message to Telegram: ", e);
         }
     }
 
+    /**
+     * Sends one message right away. Notifications go through
+     * {@link TelegramSendQueue} instead, which respects Telegram's rate limits.
+     */
+    public void sendMessage(String targetChatId, String message) throws TelegramApiException {
+        SendMessage sendMessage = new SendMessage();
+        sendMessage.setChatId(targetChatId);
+        sendMessage.setText(message);
+        execute(sendMessage);
+        logger.debug("Message sent successfully to chat {}", targetChatId);
+    }
+
     public void sendVideoUpdate(String channelName, String videoUrl, Long commentCount) {
         String message = String.format("""
             🎥 New Video Update!
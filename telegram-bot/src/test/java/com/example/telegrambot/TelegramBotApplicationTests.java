@@ -1,11 +1,25 @@
 package com.example.telegrambot;
 
+import java.nio.file.Path;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 @SpringBootTest
 class TelegramBotApplicationTests {
 
+	@TempDir
+	static Path dataDir;
+
+	// Keep the state file out of the working tree's data/ directory
+	@DynamicPropertySource
+	static void dataFiles(DynamicPropertyRegistry registry) {
+		registry.add("telegram.queue.state-file", () -> dataDir.resolve("telegram-queue.json").toString());
+	}
+
 	@Test
 	void contextLoads() {
 	}
@@ -0,0 +1,347 @@
+package com.example.telegrambot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import com.example.telegrambot.model.YoutubeVideo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class TelegramSendQueueTest {
+
+    private static final String CHAT = "42";
+    private static final String DEAD_LETTER_TOPIC = "youtube-comments.DLT";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final YouTubeTelegramBot bot = mock(YouTubeTelegramBot.class);
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> deadLetterTemplate = mock(KafkaTemplate.class);
+    private final KafkaListenerEndpointRegistry listenerRegistry = mock(KafkaListenerEndpointRegistry.class);
+    private final List<TelegramSendQueue> started = new CopyOnWriteArrayList<>();
+    // Times of the calls to the bot, in milliseconds
+    private final List<Long> sendTimes = new CopyOnWriteArrayList<>();
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void stopQueues() throws InterruptedException {
+        for (TelegramSendQueue queue : started) {
+            queue.stop();
+        }
+    }
+
+    private TelegramSendQueue newQueue() {
+        TelegramSendQueue queue = new TelegramSendQueue(bot, deadLetterTemplate, listenerRegistry, objectMapper, 1000);
+        ReflectionTestUtils.setField(queue, "defaultChatId", CHAT);
+        ReflectionTestUtils.setField(queue, "maxPending", 100);
+        ReflectionTestUtils.setField(queue, "pauseThreshold", 80);
+        ReflectionTestUtils.setField(queue, "stateFile", dir.resolve("telegram-queue.json").toString());
+        ReflectionTestUtils.setField(queue, "initialBackoffMillis", 200L);
+        ReflectionTestUtils.setField(queue, "maxBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(queue, "deadLetterTopic", DEAD_LETTER_TOPIC);
+        ReflectionTestUtils.setField(queue, "deadLetterTimeoutMillis", 1000L);
+        ReflectionTestUtils.setField(queue, "digestMaxItems", 10);
+        ReflectionTestUtils.setField(queue, "maxCommentsPerVideo", 3);
+        ReflectionTestUtils.setField(queue, "chatRate", 1000.0);
+        ReflectionTestUtils.setField(queue, "chatBurst", 1.0);
+        return queue;
+    }
+
+    private void start(TelegramSendQueue queue) {
+        queue.start();
+        started.add(queue);
+    }
+
+    private static YoutubeVideo video(String videoId, long views, String comment) {
+        YoutubeVideo video = new YoutubeVideo();
+        video.setVideoId(videoId);
+        video.setTitle("Video " + videoId);
+        video.setChannelName("Channel");
+        video.setViewCount(views);
+        video.setLikeCount(1L);
+        video.setCommentCount(1L);
+        video.setCommentText(comment);
+        video.setVideoUrl("https://www.youtube.com/watch?v=" + videoId);
+        return video;
+    }
+
+    /** Records the time of every call and then runs the given outcomes in turn, the last one repeating. */
+    private void botAnswers(Outcome... outcomes) throws TelegramApiException {
+        doAnswer(invocation -> {
+            sendTimes.add(System.currentTimeMillis());
+            outcomes[Math.min(sendTimes.size(), outcomes.length) - 1].run();
+            return null;
+        }).when(bot).sendMessage(anyString(), anyString());
+    }
+
+    private interface Outcome {
+        void run() throws Exception;
+    }
+
+    private static TelegramApiRequestException requestError(int errorCode, Integer retryAfter) throws Exception {
+        String parameters = retryAfter != null ? ",\"parameters\":{\"retry_after\":" + retryAfter + "}" : "";
+        ApiResponse<?> response = new ObjectMapper().readValue("{\"ok\":false,\"error_code\":" + errorCode
+            + ",\"description\":\"Error " + errorCode + "\"" + parameters + "}", ApiResponse.class);
+        return new TelegramApiRequestException("Error " + errorCode, response);
+    }
+
+    private List<String> sentTexts(int times) throws TelegramApiException {
+        ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+        verify(bot, timeout(5000).times(times)).sendMessage(eq(CHAT), text.capture());
+        return text.getAllValues();
+    }
+
+    private static long stat(TelegramSendQueue queue, String name) {
+        return ((Number) queue.getStats().get(name)).longValue();
+    }
+
+    @Test
+    void sendsASingleUpdateAsItIs() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        queue.enqueue(video("a", 10, "First!"));
+        start(queue);
+
+        String text = sentTexts(1).get(0);
+
+        assertTrue(text.startsWith("🎥 New YouTube Video Update!"), text);
+        assertTrue(text.contains("Comment: First!"), text);
+    }
+
+    @Test
+    void coalescesUpdatesOfAVideoIntoOneDigest() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        queue.enqueue(video("a", 10, "one"));
+        queue.enqueue(video("b", 20, "other video"));
+        queue.enqueue(video("a", 11, "two"));
+        queue.enqueue(video("a", 12, "three"));
+        queue.enqueue(video("a", 13, "four"));
+        assertEquals(2, stat(queue, "pending"));
+        assertEquals(3, stat(queue, "coalesced"));
+
+        start(queue);
+        String text = sentTexts(1).get(0);
+
+        assertTrue(text.startsWith("📬 2 video updates"), text);
+        // Latest statistics, the newest three comments and a count of the rest
+        assertTrue(text.contains("👁️ 13 "), text);
+        assertFalse(text.contains("💬 one"), text);
+        assertTrue(text.contains("💬 two\n💬 three\n💬 four\n… and 1 more comments"), text);
+        assertTrue(text.contains("💬 other video"), text);
+        verify(bot, timeout(5000).times(1)).sendMessage(anyString(), anyString());
+        assertEquals(1, stat(queue, "sent"));
+        assertEquals(0, stat(queue, "pending"));
+    }
+
+    @Test
+    void retriesWithBackoffAndMergesUpdatesThatArriveMeanwhile() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        botAnswers(() -> {
+            // A newer update of the same video arrives while the first is in flight
+            queue.enqueue(video("a", 11, "second"));
+            throw new TelegramApiException("Connection reset");
+        }, () -> { });
+        queue.enqueue(video("a", 10, "first"));
+        start(queue);
+
+        String retried = sentTexts(2).get(1);
+
+        assertTrue(retried.contains("💬 first\n💬 second"), retried);
+        assertTrue(retried.contains("👁️ 11 "), retried);
+        assertTrue(sendTimes.get(1) - sendTimes.get(0) >= 190, "retried after " + (sendTimes.get(1) - sendTimes.get(0)));
+        assertEquals(1, stat(queue, "failed"));
+        assertEquals(1, stat(queue, "sent"));
+        // The merged update is counted once
+        assertEquals(0, stat(queue, "pending"));
+        assertEquals(0, stat(queue, "consecutiveFailures"));
+    }
+
+    @Test
+    void waitsForTelegramsRetryAfter() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        TelegramApiRequestException tooManyRequests = requestError(429, 1);
+        botAnswers(() -> {
+            throw tooManyRequests;
+        }, () -> { });
+        queue.enqueue(video("a", 10, "first"));
+        start(queue);
+
+        sentTexts(2);
+
+        assertTrue(sendTimes.get(1) - sendTimes.get(0) >= 950, "retried after " + (sendTimes.get(1) - sendTimes.get(0)));
+        verify(deadLetterTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void retriesUnexpectedErrorsInsteadOfDroppingTheBatch() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        botAnswers(() -> {
+            throw new IllegalStateException("Bug in the send path");
+        }, () -> { });
+        queue.enqueue(video("a", 10, "first"));
+        start(queue);
+
+        List<String> texts = sentTexts(2);
+
+        assertEquals(texts.get(0), texts.get(1));
+        assertEquals(1, stat(queue, "sent"));
+        assertEquals(0, stat(queue, "pending"));
+    }
+
+    @Test
+    void deadLettersMessagesTelegramRejects() throws Exception {
+        when(deadLetterTemplate.send(anyString(), anyString(), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        TelegramSendQueue queue = newQueue();
+        TelegramApiRequestException badRequest = requestError(400, null);
+        botAnswers(() -> {
+            throw badRequest;
+        });
+        YoutubeVideo video = video("a", 10, "first");
+        queue.enqueue(video);
+        start(queue);
+
+        verify(deadLetterTemplate, timeout(5000)).send(eq(DEAD_LETTER_TOPIC), eq("a"), any());
+        sentTexts(1);
+        assertEquals(1, stat(queue, "deadLettered"));
+        assertEquals(0, stat(queue, "pending"));
+    }
+
+    @Test
+    void keepsRejectedMessagesUntilTheDeadLetterTopicTakesThem() throws Exception {
+        CompletableFuture<SendResult<String, Object>> unavailable =
+            CompletableFuture.failedFuture(new KafkaException("Broker down"));
+        when(deadLetterTemplate.send(anyString(), anyString(), any()))
+            .thenReturn(unavailable)
+            .thenReturn(CompletableFuture.completedFuture(null));
+        TelegramSendQueue queue = newQueue();
+        TelegramApiRequestException badRequest = requestError(400, null);
+        botAnswers(() -> {
+            throw badRequest;
+        });
+        queue.enqueue(video("a", 10, "first"));
+        start(queue);
+
+        verify(deadLetterTemplate, timeout(5000).times(2)).send(eq(DEAD_LETTER_TOPIC), eq("a"), any());
+        sentTexts(2);
+        assertEquals(1, stat(queue, "deadLettered"));
+    }
+
+    @Test
+    void deadLettersTheOldestUpdateWhenFull() throws Exception {
+        when(deadLetterTemplate.send(anyString(), anyString(), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        TelegramSendQueue queue = newQueue();
+        ReflectionTestUtils.setField(queue, "maxPending", 2);
+
+        queue.enqueue(video("a", 10, "first"));
+        queue.enqueue(video("b", 10, "second"));
+        queue.enqueue(video("c", 10, "third"));
+
+        verify(deadLetterTemplate).send(eq(DEAD_LETTER_TOPIC), eq("a"), any());
+        assertEquals(2, stat(queue, "pending"));
+        assertEquals(1, stat(queue, "dropped"));
+    }
+
+    @Test
+    void keepsTheOldestUpdateWhenTheDeadLetterTopicIsDown() throws Exception {
+        CompletableFuture<SendResult<String, Object>> unavailable =
+            CompletableFuture.failedFuture(new KafkaException("Broker down"));
+        when(deadLetterTemplate.send(anyString(), anyString(), any())).thenReturn(unavailable);
+        TelegramSendQueue queue = newQueue();
+        ReflectionTestUtils.setField(queue, "maxPending", 2);
+
+        queue.enqueue(video("a", 10, "first"));
+        queue.enqueue(video("b", 10, "second"));
+        queue.enqueue(video("c", 10, "third"));
+
+        assertEquals(3, stat(queue, "pending"));
+        assertEquals(0, stat(queue, "dropped"));
+    }
+
+    @Test
+    void restoresTheSavedQueue() throws Exception {
+        TelegramSendQueue saved = newQueue();
+        saved.enqueue(video("a", 10, "first"));
+        saved.enqueue(video("b", 20, "other video"));
+        saved.enqueue(video("a", 11, "second"));
+        saved.persist();
+
+        TelegramSendQueue restored = newQueue();
+        restored.restore();
+        assertEquals(2, stat(restored, "pending"));
+
+        start(newQueue());
+        String text = sentTexts(1).get(0);
+        assertTrue(text.startsWith("📬 2 video updates"), text);
+        assertTrue(text.contains("💬 first\n💬 second"), text);
+        assertTrue(text.contains("👁️ 11 "), text);
+    }
+
+    @Test
+    void pausesTheListenerForARestoredBacklog() throws Exception {
+        TelegramSendQueue saved = newQueue();
+        for (int i = 0; i < 3; i++) {
+            saved.enqueue(video("v" + i, 10, "comment"));
+        }
+        saved.persist();
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(listenerRegistry.getListenerContainer(KafkaConsumerService.LISTENER_ID)).thenReturn(container);
+
+        TelegramSendQueue restored = newQueue();
+        ReflectionTestUtils.setField(restored, "pauseThreshold", 3);
+        restored.restore();
+        restored.pauseIfBacklogged();
+
+        verify(container).pause();
+        assertEquals(Boolean.TRUE, restored.getStats().get("listenerPaused"));
+    }
+
+    @Test
+    void savesOnlyWhenTheQueueChanged() throws Exception {
+        TelegramSendQueue queue = newQueue();
+        Path file = dir.resolve("telegram-queue.json");
+        queue.enqueue(video("a", 10, "first"));
+        queue.persist();
+        assertTrue(file.toFile().delete());
+
+        queue.persist();
+        assertFalse(file.toFile().exists());
+
+        queue.enqueue(video("a", 11, "second"));
+        queue.persist();
+        TelegramSendQueue.Snapshot snapshot = objectMapper.readValue(file.toFile(), TelegramSendQueue.Snapshot.class);
+        assertEquals(1, snapshot.getEntries().size());
+        assertEquals(List.of("first", "second"), snapshot.getEntries().get(0).getComments());
+        assertEquals(2, snapshot.getEntries().get(0).getUpdates());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.telegrambot.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void startsFullAndThenWaitsOneTokenInterval() {
+        TokenBucket bucket = new TokenBucket(2, 3);
+        long now = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.nanosUntilAvailable(now));
+            bucket.take(now);
+        }
+
+        assertEquals(SECOND / 2, bucket.nanosUntilAvailable(now));
+        assertEquals(SECOND / 4, bucket.nanosUntilAvailable(now + SECOND / 4));
+        assertEquals(0, bucket.nanosUntilAvailable(now + SECOND / 2));
+    }
+
+    @Test
+    void refillsNoFurtherThanItsCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+        bucket.take(now);
+        bucket.take(now);
+
+        long later = now + 60 * SECOND;
+        bucket.take(later);
+        bucket.take(later);
+
+        assertEquals(SECOND / 10, bucket.nanosUntilAvailable(later));
+    }
+
+    @Test
+    void allowsAtLeastOneTokenOfBurst() {
+        TokenBucket bucket = new TokenBucket(1, 0);
+        long now = System.nanoTime();
+
+        assertEquals(0, bucket.nanosUntilAvailable(now));
+        bucket.take(now);
+        assertEquals(SECOND, bucket.nanosUntilAvailable(now));
+    }
+
+    @Test
+    void ignoresClockReadingsFromBeforeTheLastRefill() {
+        TokenBucket bucket = new TokenBucket(1, 1);
+        long now = System.nanoTime();
+        bucket.take(now);
+
+        assertEquals(SECOND, bucket.nanosUntilAvailable(now - SECOND));
+    }
+}